@@ -0,0 +1,66 @@
+package com.automation.taskplatform.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class ExecutionConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionConfig.class);
+
+    // Virtual threads need Java 21+, fall back to platform threads on older runtimes
+    private final boolean virtualThreads;
+
+    public ExecutionConfig(@Value("${workflow.execution.virtual-threads:true}") boolean virtualThreads) {
+        this.virtualThreads = virtualThreads && Runtime.version().feature() >= 21;
+    }
+
+    // The WebSocket broker registers a TaskScheduler of its own, which makes Boot skip the one it
+    // builds from spring.task.scheduling.*; declared here so @Scheduled jobs keep their own pool
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+
+    // Runs workflow executions off the scheduler thread. The concurrency limit is the global cap:
+    // once it is reached, dispatching blocks until a running workflow finishes.
+    @Bean(destroyMethod = "close")
+    public SimpleAsyncTaskExecutor workflowExecutor(@Value("${workflow.execution.max-concurrency:32}") int maxConcurrency) {
+        log.info("Workflow executor initialized (max concurrency: {}, virtual threads: {})",
+                maxConcurrency, virtualThreads);
+        return executor("workflow-", maxConcurrency);
+    }
+
+    // Bounded pool for OpenAI summary calls shared by every running workflow, so a burst of
+    // recaps cannot open more concurrent requests than the account tolerates
+    @Bean(destroyMethod = "close")
+    public SimpleAsyncTaskExecutor aiSummaryExecutor(@Value("${openai.max-concurrency:8}") int maxConcurrency) {
+        return executor("ai-summary-", maxConcurrency);
+    }
+
+    // Send workers for the email outbox, sized independently of workflow execution
+    @Bean(destroyMethod = "close")
+    public SimpleAsyncTaskExecutor emailSendExecutor(@Value("${email.outbox.max-concurrency:8}") int maxConcurrency) {
+        return executor("email-send-", maxConcurrency);
+    }
+
+    // Background Google token refreshes, kept small so a refresh burst cannot crowd out Gmail calls
+    @Bean(destroyMethod = "close")
+    public SimpleAsyncTaskExecutor tokenRefreshExecutor(@Value("${google.token-refresh.max-concurrency:4}") int maxConcurrency) {
+        return executor("token-refresh-", maxConcurrency);
+    }
+
+    private SimpleAsyncTaskExecutor executor(String threadNamePrefix, int concurrencyLimit) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setConcurrencyLimit(concurrencyLimit);
+        executor.setTaskTerminationTimeout(30_000);
+        executor.setVirtualThreads(virtualThreads);
+        return executor;
+    }
+}
@@ -0,0 +1,27 @@
+package com.automation.taskplatform.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class GoogleApiConfig {
+
+    // One pooled, keep-alive transport for every Gmail and OAuth call, so connections and
+    // TLS sessions are reused across executions instead of being set up per call
+    @Bean(destroyMethod = "shutdown")
+    public HttpTransport googleHttpTransport(
+            @Value("${google.http.max-connections:200}") int maxConnections,
+            @Value("${google.http.max-connections-per-route:50}") int maxConnectionsPerRoute) {
+        return new ApacheHttpTransport(ApacheHttpTransport.newDefaultHttpClientBuilder()
+            .setMaxConnTotal(maxConnections)
+            .setMaxConnPerRoute(maxConnectionsPerRoute)
+            .evictIdleConnections(60, TimeUnit.SECONDS)
+            .build());
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.automation.taskplatform.model.AuthenticatedUser;
 import com.automation.taskplatform.service.JwtService;
 
 import jakarta.servlet.FilterChain;
@@ -19,6 +20,8 @@ import jakarta.servlet.http.HttpServletResponse;
 
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+    private static final List<SimpleGrantedAuthority> AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+
     private final JwtService jwtService;
     private final SecurityContextRepository securityContextRepository;
 
@@ -43,11 +46,12 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         String token = authHeader.substring(7);
 
         try {
-            String username = jwtService.getUsername(token);
+            AuthenticatedUser user = jwtService.authenticate(token);
 
-            if (username != null) {
+            if (user.email() != null) {
+                // getName() still returns the email, via AuthenticatedUser.getName()
                 UsernamePasswordAuthenticationToken authToken =
-                    new UsernamePasswordAuthenticationToken(username, null, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+                    new UsernamePasswordAuthenticationToken(user, null, AUTHORITIES);
 
                 SecurityContext context = SecurityContextHolder.createEmptyContext();
                 context.setAuthentication(authToken);
@@ -0,0 +1,67 @@
+package com.automation.taskplatform.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+import com.automation.taskplatform.service.JwtService;
+
+// Browsers cannot set headers on the WebSocket handshake, so the JWT travels in the STOMP
+// CONNECT frame's Authorization header instead. The session's user is the token's user, and
+// clients may only subscribe to their own /user/queue/... destinations. The session is closed
+// when the token expires, see StompSessionExpiry.
+public class StompAuthInterceptor implements ChannelInterceptor {
+
+    private static final String USER_QUEUE_PREFIX = "/user/queue/";
+
+    private final JwtService jwtService;
+    private final StompSessionExpiry sessionExpiry;
+
+    public StompAuthInterceptor(JwtService jwtService, StompSessionExpiry sessionExpiry) {
+        this.jwtService = jwtService;
+        this.sessionExpiry = sessionExpiry;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+
+        StompCommand command = accessor.getCommand();
+        if (command == StompCommand.CONNECT) {
+            JwtService.VerifiedToken token = authenticate(accessor.getFirstNativeHeader("Authorization"));
+            accessor.setUser(token.user());
+            sessionExpiry.expireAt(accessor.getSessionId(), token.expiresAtMillis());
+        } else if (command == StompCommand.SUBSCRIBE) {
+            String destination = accessor.getDestination();
+            if (accessor.getUser() == null || destination == null || !destination.startsWith(USER_QUEUE_PREFIX)) {
+                throw new MessageDeliveryException("Subscriptions are limited to " + USER_QUEUE_PREFIX + "*");
+            }
+        } else if (command == StompCommand.SEND) {
+            // The channel only pushes to the client
+            throw new MessageDeliveryException("Sending is not supported");
+        }
+        return message;
+    }
+
+    private JwtService.VerifiedToken authenticate(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            throw new MessageDeliveryException("Missing bearer token");
+        }
+        try {
+            JwtService.VerifiedToken token = jwtService.verify(authHeader.substring(7));
+            if (token.user().email() != null) {
+                return token;
+            }
+        } catch (Exception e) {
+            // Falls through to the rejection below
+        }
+        throw new MessageDeliveryException("Invalid token");
+    }
+}
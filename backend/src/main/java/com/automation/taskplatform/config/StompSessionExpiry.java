@@ -0,0 +1,77 @@
+package com.automation.taskplatform.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+// A socket authenticates once, at STOMP CONNECT, and never presents its JWT again. This closes
+// each session when its token expires, so it stops receiving events; the client has to connect
+// again with a fresh token. Tracks the node's open sessions to be able to close them.
+public class StompSessionExpiry implements WebSocketHandlerDecoratorFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(StompSessionExpiry.class);
+
+    private final TaskScheduler scheduler;
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> expiries = new ConcurrentHashMap<>();
+
+    public StompSessionExpiry(TaskScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessions.put(session.getId(), session);
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                ScheduledFuture<?> expiry = expiries.remove(session.getId());
+                if (expiry != null) {
+                    expiry.cancel(false);
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    public void expireAt(String sessionId, long expiresAtMillis) {
+        if (sessionId == null || expiresAtMillis == Long.MAX_VALUE) {
+            return;
+        }
+        ScheduledFuture<?> previous = expiries.put(sessionId,
+            scheduler.schedule(() -> close(sessionId), Instant.ofEpochMilli(expiresAtMillis)));
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    private void close(String sessionId) {
+        expiries.remove(sessionId);
+        WebSocketSession session = sessions.get(sessionId);
+        if (session == null) {
+            return;
+        }
+        try {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("Token expired"));
+        } catch (IOException e) {
+            log.debug("Could not close expired WebSocket session {}: {}", sessionId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.automation.taskplatform.config;
+
+import com.automation.taskplatform.service.UpstreamGuard;
+import com.automation.taskplatform.service.UpstreamGuard.Outcome;
+import com.automation.taskplatform.service.UpstreamGuard.Settings;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpResponseException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.io.IOException;
+
+@Configuration
+public class UpstreamConfig {
+
+    // Gmail limits are in quota units: 250 per user per second, e.g. 5 per messages.get and
+    // 100 per messages.send
+    @Bean
+    public UpstreamGuard gmailGuard(
+            @Value("${upstream.gmail.global-units-per-second:20000}") double globalUnitsPerSecond,
+            @Value("${upstream.gmail.user-units-per-second:250}") double userUnitsPerSecond,
+            @Value("${upstream.gmail.max-concurrency:64}") int maxConcurrency,
+            @Value("${upstream.gmail.min-concurrency:4}") int minConcurrency,
+            @Value("${upstream.failure-threshold:5}") int failureThreshold,
+            @Value("${upstream.open-seconds:30}") long openSeconds,
+            @Value("${upstream.max-wait-ms:5000}") long maxWaitMillis) {
+        return new UpstreamGuard("gmail", new Settings(globalUnitsPerSecond, userUnitsPerSecond,
+            maxConcurrency / 2, minConcurrency, maxConcurrency, failureThreshold, openSeconds * 1000, maxWaitMillis),
+            UpstreamConfig::classifyGoogle);
+    }
+
+    // OpenAI requests/tokens per minute are enforced by OpenAiRateLimiter; this guard adds
+    // the adaptive concurrency limit and the circuit breaker
+    @Bean
+    public UpstreamGuard openAiGuard(
+            @Value("${upstream.openai.max-concurrency:16}") int maxConcurrency,
+            @Value("${upstream.openai.min-concurrency:1}") int minConcurrency,
+            @Value("${upstream.failure-threshold:5}") int failureThreshold,
+            @Value("${upstream.open-seconds:30}") long openSeconds,
+            @Value("${upstream.max-wait-ms:5000}") long maxWaitMillis) {
+        return new UpstreamGuard("openai", new Settings(0, 0,
+            maxConcurrency / 2, minConcurrency, maxConcurrency, failureThreshold, openSeconds * 1000, maxWaitMillis),
+            UpstreamConfig::classifyOpenAi);
+    }
+
+    // userRateLimitExceeded is one mailbox over its quota and only backs off that user;
+    // rateLimitExceeded (the project quota) and 5xx count against the upstream as a whole
+    static Outcome classifyGoogle(Exception e) {
+        if (e instanceof GoogleJsonResponseException response && response.getDetails() != null
+                && response.getDetails().getErrors() != null) {
+            if (hasReason(response, "userRateLimitExceeded")) {
+                return Outcome.USER_OVERLOAD;
+            }
+            if (hasReason(response, "rateLimitExceeded")) {
+                return Outcome.OVERLOAD;
+            }
+        }
+        if (e instanceof HttpResponseException response) {
+            return classifyStatus(response.getStatusCode());
+        }
+        return e instanceof IOException ? Outcome.FAILURE : Outcome.CLIENT_ERROR;
+    }
+
+    static Outcome classifyOpenAi(Exception e) {
+        if (e instanceof HttpStatusCodeException response) {
+            return classifyStatus(response.getStatusCode().value());
+        }
+        return Outcome.FAILURE;
+    }
+
+    private static boolean hasReason(GoogleJsonResponseException response, String reason) {
+        return response.getDetails().getErrors().stream().anyMatch(error -> reason.equals(error.getReason()));
+    }
+
+    private static Outcome classifyStatus(int status) {
+        if (status == 429 || status >= 500) {
+            return Outcome.OVERLOAD;
+        }
+        return Outcome.CLIENT_ERROR;
+    }
+}
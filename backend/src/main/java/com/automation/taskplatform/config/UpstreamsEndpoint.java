@@ -0,0 +1,31 @@
+package com.automation.taskplatform.config;
+
+import com.automation.taskplatform.service.UpstreamGuard;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// GET /actuator/upstreams: breaker state, adaptive concurrency and rate limiter headroom per upstream
+@Component
+@Endpoint(id = "upstreams")
+public class UpstreamsEndpoint {
+
+    private final List<UpstreamGuard> guards;
+
+    public UpstreamsEndpoint(List<UpstreamGuard> guards) {
+        this.guards = guards;
+    }
+
+    @ReadOperation
+    public Map<String, Object> upstreams() {
+        Map<String, Object> upstreams = new LinkedHashMap<>();
+        for (UpstreamGuard guard : guards) {
+            upstreams.put(guard.name(), guard.snapshot());
+        }
+        return upstreams;
+    }
+}
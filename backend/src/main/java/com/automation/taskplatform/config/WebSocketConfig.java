@@ -0,0 +1,63 @@
+package com.automation.taskplatform.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+import com.automation.taskplatform.service.JwtService;
+
+// STOMP over WebSocket at /ws. Each user receives execution events on /user/queue/executions,
+// see ExecutionEventPublisher. Heartbeats keep idle connections open through proxies.
+@Configuration
+@EnableWebSocketMessageBroker
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+
+    private final JwtService jwtService;
+    private final TaskScheduler messageBrokerTaskScheduler;
+    private final StompSessionExpiry sessionExpiry;
+    private final String[] allowedOrigins;
+    private final long heartbeatMillis;
+
+    public WebSocketConfig(
+            JwtService jwtService,
+            @Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler messageBrokerTaskScheduler,
+            @Value("${allowed.origins}") String[] allowedOrigins,
+            @Value("${websocket.heartbeat-ms:10000}") long heartbeatMillis) {
+        this.jwtService = jwtService;
+        this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+        this.sessionExpiry = new StompSessionExpiry(messageBrokerTaskScheduler);
+        this.allowedOrigins = allowedOrigins;
+        this.heartbeatMillis = heartbeatMillis;
+    }
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint("/ws").setAllowedOrigins(allowedOrigins);
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        registry.enableSimpleBroker("/queue")
+            .setHeartbeatValue(new long[] {heartbeatMillis, heartbeatMillis})
+            .setTaskScheduler(messageBrokerTaskScheduler);
+        registry.setUserDestinationPrefix("/user");
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new StompAuthInterceptor(jwtService, sessionExpiry));
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(sessionExpiry);
+    }
+}
@@ -2,7 +2,9 @@ package com.automation.taskplatform.controller;
 
 import com.automation.taskplatform.model.User;
 import com.automation.taskplatform.repository.UserRepository;
+import com.automation.taskplatform.service.GmailService;
 import com.automation.taskplatform.service.GoogleOAuthService;
+import com.automation.taskplatform.service.UserService;
 import com.automation.taskplatform.service.WorkflowExecutionService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -16,15 +18,21 @@ public class GoogleAuthController {
 
     private final GoogleOAuthService googleOAuthService;
     private final UserRepository userRepository;
+    private final UserService userService;
     private final WorkflowExecutionService workflowExecutionService;
+    private final GmailService gmailService;
 
     public GoogleAuthController(
             GoogleOAuthService googleOAuthService,
             UserRepository userRepository,
-            WorkflowExecutionService workflowExecutionService) {
+            UserService userService,
+            WorkflowExecutionService workflowExecutionService,
+            GmailService gmailService) {
         this.googleOAuthService = googleOAuthService;
         this.userRepository = userRepository;
+        this.userService = userService;
         this.workflowExecutionService = workflowExecutionService;
+        this.gmailService = gmailService;
     }
 
     @GetMapping("/authorize")
@@ -54,29 +62,23 @@ public class GoogleAuthController {
 
     @GetMapping("/status")
     public ResponseEntity<?> status() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        System.out.println("DEBUG: Looking for user with email: '" + email + "'");
-
-        User user = userRepository.findByEmailIgnoreCase(email)
-            .orElseThrow(() -> {
-                System.out.println("DEBUG: User NOT found for email: '" + email + "'");
-                return new RuntimeException("User not found: " + email);
-            });
-
+        User user = userService.currentUser();
         boolean connected = googleOAuthService.isConnected(user);
         return ResponseEntity.ok(Map.of("connected", connected));
     }
 
     @PostMapping("/disconnect")
     public ResponseEntity<?> disconnect() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmailIgnoreCase(email)
+        // Loaded fresh rather than from the cache, since it is about to be written
+        User user = userRepository.findById(userService.currentUserId())
             .orElseThrow(() -> new RuntimeException("User not found"));
 
         user.setGoogleAccessToken(null);
         user.setGoogleRefreshToken(null);
         user.setGoogleTokenExpiry(null);
-        userRepository.save(user);
+        userService.save(user);
+        gmailService.evictClient(user.getId());
+        googleOAuthService.evictToken(user.getId());
 
         return ResponseEntity.ok(Map.of("message", "Gmail disconnected"));
     }
@@ -2,14 +2,28 @@ package com.automation.taskplatform.controller;
                                                                                                                                                         
   import java.util.List;                                                                                                                                
                                                                                                                                                         
+  import org.springframework.http.CacheControl;
+  import org.springframework.http.HttpHeaders;
+  import org.springframework.http.HttpStatus;
+  import org.springframework.http.MediaType;
   import org.springframework.http.ResponseEntity;                                                                                                       
-  import org.springframework.web.bind.annotation.*;                                                                                                     
+  import org.springframework.web.bind.annotation.*;
+  import org.springframework.web.context.request.WebRequest;                                                                                                     
                                                                                                                                                         
+  import com.automation.taskplatform.dto.WorkflowResponse;
+  import com.automation.taskplatform.dto.WorkflowRunResponse;
   import com.automation.taskplatform.model.Workflow;
+  import com.automation.taskplatform.model.WorkflowJob;
   import com.automation.taskplatform.service.WorkflowService;
   import com.automation.taskplatform.service.WorkflowExecutionService;
+  import com.automation.taskplatform.service.WorkflowJobService;
 
+  import java.io.InputStream;
   import java.util.Map;
+  import java.util.Set;
+
+  import tools.jackson.core.JacksonException;
+  import tools.jackson.databind.json.JsonMapper;
 
   @RestController
   @RequestMapping("/api/workflows")
@@ -17,10 +31,15 @@ package com.automation.taskplatform.controller;
 
       private final WorkflowService workflowService;
       private final WorkflowExecutionService workflowExecutionService;
+      private final WorkflowJobService workflowJobService;
+      private final JsonMapper jsonMapper;
 
-      public WorkflowController(WorkflowService workflowService, WorkflowExecutionService workflowExecutionService) {
+      public WorkflowController(WorkflowService workflowService, WorkflowExecutionService workflowExecutionService,
+                                WorkflowJobService workflowJobService, JsonMapper jsonMapper) {
           this.workflowService = workflowService;
           this.workflowExecutionService = workflowExecutionService;
+          this.workflowJobService = workflowJobService;
+          this.jsonMapper = jsonMapper;
       }                                                                                                                                                 
                                                                                                                                                         
       @PostMapping                         // POST /api/workflows                                                                                       
@@ -28,10 +47,61 @@ package com.automation.taskplatform.controller;
           return ResponseEntity.ok(workflowService.createWorkflow(workflow));                                                                           
       }                                                                                                                                                 
                                                                                                                                                         
-      @GetMapping                          // GET /api/workflows                                                                                        
-      public ResponseEntity<List<Workflow>> getAll() {                                                                                                  
-          return ResponseEntity.ok(workflowService.getWorkflowsByUser());                                                                               
-      }                                                                                                                                                 
+      // POST /api/workflows/bulk - up to 1000 workflows as a JSON array, created all or nothing
+      @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+      public ResponseEntity<List<Workflow>> createAll(@RequestBody List<Workflow> workflows) {
+          return ResponseEntity.ok(workflowService.createWorkflows(workflows));
+      }
+
+      // Same, one workflow per line (application/x-ndjson), as exported by provisioning scripts
+      @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+      public ResponseEntity<List<Workflow>> createAllNdjson(InputStream body) {
+          return ResponseEntity.ok(workflowService.createWorkflows(readNdjson(body)));
+      }
+
+      // PUT /api/workflows/bulk - full updates; every workflow carries its id
+      @PutMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+      public ResponseEntity<List<Workflow>> updateAll(@RequestBody List<Workflow> workflows) {
+          return ResponseEntity.ok(workflowService.updateWorkflows(workflows));
+      }
+
+      @PutMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+      public ResponseEntity<List<Workflow>> updateAllNdjson(InputStream body) {
+          return ResponseEntity.ok(workflowService.updateWorkflows(readNdjson(body)));
+      }
+
+      @PostMapping("/bulk/activate")       // POST /api/workflows/bulk/activate with [1, 2, 3]
+      public ResponseEntity<Map<String, Integer>> activateAll(@RequestBody Set<Long> ids) {
+          return ResponseEntity.ok(Map.of("updated", workflowService.setWorkflowsActive(ids, true)));
+      }
+
+      @PostMapping("/bulk/deactivate")     // POST /api/workflows/bulk/deactivate with [1, 2, 3]
+      public ResponseEntity<Map<String, Integer>> deactivateAll(@RequestBody Set<Long> ids) {
+          return ResponseEntity.ok(Map.of("updated", workflowService.setWorkflowsActive(ids, false)));
+      }
+
+      // GET /api/workflows?after=120&limit=100 - keyset pages in ID order; the Link header points
+      // at the next page. Unchanged lists are answered with 304 before any workflow row is read.
+      @GetMapping
+      public ResponseEntity<List<WorkflowResponse>> getAll(
+              @RequestParam(defaultValue = "0") long after,
+              @RequestParam(defaultValue = "100") int limit,
+              WebRequest request) {
+          String etag = workflowService.getWorkflowListVersion();
+          CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+          if (request.checkNotModified(etag)) {
+              return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+          }
+
+          List<WorkflowResponse> page = workflowService.getWorkflowsByUser(after, limit);
+          ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag).cacheControl(cacheControl);
+          if (page.size() == limit) {
+              long next = page.get(page.size() - 1).getId();
+              response.header(HttpHeaders.LINK, "</api/workflows?after=" + next + "&limit=" + limit + ">; rel=\"next\"");
+          }
+          return response.body(page);
+      }
+
                                                                                                                                                         
       @GetMapping("/{id}")                 // GET /api/workflows/123                                                                                    
       public ResponseEntity<Workflow> getById(@PathVariable Long id) {                                                                                  
@@ -51,11 +121,31 @@ package com.automation.taskplatform.controller;
 
       @PostMapping("/{id}/run")           // POST /api/workflows/123/run
       public ResponseEntity<?> run(@PathVariable Long id) {
+          workflowService.getWorkflowById(id);   // 404 unless the workflow is the caller's
           try {
-              workflowExecutionService.runNow(id);
-              return ResponseEntity.ok(Map.of("message", "Workflow executed successfully"));
+              WorkflowJob job = workflowExecutionService.runNow(id);
+              return ResponseEntity.accepted().body(Map.of(     // Returns HTTP 202, poll the run for the outcome
+                  "jobId", job.getId(),
+                  "status", job.getStatus(),
+                  "statusUrl", "/api/workflows/" + id + "/runs/" + job.getId()));
           } catch (Exception e) {
               return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
           }
       }
-  }    
\ No newline at end of file
+
+      @GetMapping("/{id}/runs/{jobId}")    // GET /api/workflows/123/runs/456
+      public ResponseEntity<WorkflowRunResponse> getRun(@PathVariable Long id, @PathVariable Long jobId) {
+          WorkflowJob job = workflowJobService.getJob(workflowService.getWorkflowById(id), jobId);
+          return ResponseEntity.ok(new WorkflowRunResponse(
+              job.getId(), id, job.getTriggerType(), job.getStatus(), job.getErrorMessage(),
+              job.getScheduledFor(), job.getRunAt(), job.getStartedAt(), job.getFinishedAt()));
+      }
+
+      private List<Workflow> readNdjson(InputStream body) {
+          try {
+              return jsonMapper.readerFor(Workflow.class).<Workflow>readValues(body).readAll();
+          } catch (JacksonException e) {
+              throw new RuntimeException("Invalid NDJSON body: " + e.getMessage());
+          }
+      }
+  }
\ No newline at end of file
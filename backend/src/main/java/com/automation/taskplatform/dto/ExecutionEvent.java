@@ -0,0 +1,25 @@
+package com.automation.taskplatform.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Pushed to the workflow owner's /user/queue/executions when an execution starts and ends.
+// status is STARTED, SUCCEEDED, FAILED or DEFERRED (an upstream was unavailable, the job retries
+// at retryAt); lastRunAt and nextRunAt are the workflow's values after the event.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecutionEvent {
+
+    private Long workflowId;
+    private Long jobId;
+    private String status;
+    private String errorMessage;
+    private LocalDateTime lastRunAt;
+    private LocalDateTime nextRunAt;
+    private LocalDateTime retryAt;
+    private LocalDateTime occurredAt;
+}
@@ -20,4 +20,6 @@ public class WorkflowResponse {
     private boolean active;
     private LocalDateTime createdAt;
     private LocalDateTime lastRunAt;
+    private LocalDateTime nextRunAt;
+    private LocalDateTime updatedAt;
 }
@@ -0,0 +1,23 @@
+package com.automation.taskplatform.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkflowRunResponse {
+
+    private Long jobId;
+    private Long workflowId;
+    private String triggerType;
+    private String status;
+    private String errorMessage;
+    private LocalDateTime scheduledFor;
+    private LocalDateTime runAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
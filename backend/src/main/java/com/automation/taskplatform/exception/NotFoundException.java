@@ -0,0 +1,10 @@
+package com.automation.taskplatform.exception;
+
+// A resource that does not exist or does not belong to the caller; both answer 404 so IDs of
+// other users' rows cannot be probed
+public class NotFoundException extends RuntimeException {
+
+    public NotFoundException(String message) {
+        super(message);
+    }
+}
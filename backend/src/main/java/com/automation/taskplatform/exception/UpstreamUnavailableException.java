@@ -0,0 +1,35 @@
+package com.automation.taskplatform.exception;
+
+import java.time.LocalDateTime;
+
+// Thrown without calling the upstream when its circuit is open or its rate limit cannot be met
+// in time. Work that hits it should be deferred until retryAt rather than counted as failed.
+public class UpstreamUnavailableException extends RuntimeException {
+
+    private final String upstream;
+    private final LocalDateTime retryAt;
+
+    public UpstreamUnavailableException(String upstream, String reason, LocalDateTime retryAt) {
+        super(upstream + " unavailable: " + reason);
+        this.upstream = upstream;
+        this.retryAt = retryAt;
+    }
+
+    public String getUpstream() {
+        return upstream;
+    }
+
+    public LocalDateTime getRetryAt() {
+        return retryAt;
+    }
+
+    // The UpstreamUnavailableException somewhere in the cause chain of e, or null
+    public static UpstreamUnavailableException find(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UpstreamUnavailableException unavailable) {
+                return unavailable;
+            }
+        }
+        return null;
+    }
+}
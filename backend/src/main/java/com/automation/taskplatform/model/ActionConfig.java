@@ -0,0 +1,18 @@
+package com.automation.taskplatform.model;
+
+// Typed form of Workflow.actionConfig, one record per action type. Built and validated by
+// ActionConfigService when a workflow is saved, so executions never see a malformed config.
+public sealed interface ActionConfig permits ActionConfig.EmailRecap, ActionConfig.SendEmail {
+
+    // Built-in template name, null for the action's default
+    String template();
+
+    // Template source supplied by the user, overrides template when set
+    String customTemplate();
+
+    // EMAIL_RECAP: summarizes the mail received in the last hoursBack hours
+    record EmailRecap(int hoursBack, String template, String customTemplate) implements ActionConfig {}
+
+    // SEND_EMAIL: a fixed reminder; to is null to send it to the workflow's owner
+    record SendEmail(String to, String subject, String body, String template, String customTemplate) implements ActionConfig {}
+}
@@ -0,0 +1,57 @@
+package com.automation.taskplatform.model;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity // AI summary of one Gmail message, reused by every recap that covers the message
+@Table(name = "ai_summaries",
+    uniqueConstraints = {
+        // Gmail message IDs are only unique within a mailbox, so the owner is part of the key
+        @UniqueConstraint(name = "uk_ai_summaries_message", columnNames = {"user_id", "messageId", "promptVersion"})
+    },
+    indexes = {
+        @Index(name = "idx_ai_summaries_created", columnList = "createdAt")
+    })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AiSummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @Column(nullable = false)
+    private String messageId;
+
+    @Column(nullable = false, length = 32)
+    private String promptVersion; // Hash of model and prompts; changing either invalidates old summaries
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String summary;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,14 @@
+package com.automation.taskplatform.model;
+
+import java.security.Principal;
+
+// Principal of a request authenticated by JWT. Carries the user ID from the token's "uid" claim,
+// so handlers can work with the user's rows without looking them up by email first. The ID is
+// null for tokens issued before the claim existed.
+public record AuthenticatedUser(Long id, String email) implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -0,0 +1,83 @@
+package com.automation.taskplatform.model;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity // one rendered email waiting to be sent through the user's Gmail account
+@Table(name = "email_outbox", indexes = {
+    @Index(name = "idx_email_outbox_claim", columnList = "status, nextAttemptAt"),
+    // Finds the oldest unsent message of a user, which is the only one that may be sent
+    @Index(name = "idx_email_outbox_user", columnList = "user_id, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailOutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "workflow_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Workflow workflow;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false, length = 1000)
+    private String subject;
+
+    private byte[] rawMessage; // Complete RFC 822 message; cleared once sent
+
+    @Column(nullable = false)
+    private String status; // "PENDING", "SENDING", "SENT" or "DEAD"
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt; // Not sent before this, pushed back exponentially after failures
+
+    private String lockedBy; // Node ID of the worker sending it
+
+    private LocalDateTime leaseExpiresAt; // Another node may retry the send once this passes
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    private String gmailMessageId;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime sentAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
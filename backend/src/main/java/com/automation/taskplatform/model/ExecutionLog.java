@@ -2,6 +2,9 @@ package com.automation.taskplatform.model;
 
 import java.time.LocalDateTime;
 
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
@@ -11,25 +14,29 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity //create a entity for execution logs
-@Table(name = "execution_logs")
+@Table(name = "execution_logs") // partitioned by executedAt, see ExecutionLogPartitionManager
 @Data
 @NoArgsConstructor 
 @AllArgsConstructor
 public class ExecutionLog {
     
+    // Same pooled sequence the ExecutionLogWriter reserves its ID blocks from
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "execution_log_ids")
+    @SequenceGenerator(name = "execution_log_ids", sequenceName = "execution_log_ids", allocationSize = 50)
     private Long id;
     
     // Many execution logs can belong to one workflow 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "workflow_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE) // deleting a workflow drops its history
     private Workflow workflow;
 
     // column lets postgres know that this is a foreign key
@@ -43,6 +50,9 @@ public class ExecutionLog {
     private LocalDateTime executedAt = LocalDateTime.now();
     
     private Integer executionTimeMs; // How long it took in milliseconds
+
+    @Column(columnDefinition = "TEXT")
+    private String stageTimings; // JSON map of stage (TOKEN_REFRESH, GMAIL_LIST, ...) to milliseconds
     
     @PrePersist
     protected void onCreate() {
@@ -8,23 +8,38 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 @Entity
-@Table(name = "workflows")
+@Table(name = "workflows", indexes = {
+    // Lets the scheduler range-scan only the workflows that are due
+    @Index(name = "idx_workflows_due", columnList = "triggerType, active, nextRunAt"),
+    // Keyset pages of a user's workflows, and their list version from the index alone
+    @Index(name = "idx_workflows_user_id", columnList = "user_id, id, updatedAt")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Workflow {
     
+    // Pooled: one nextval reserves 50 IDs, so bulk creates need no round trip per row and their
+    // inserts can be batched (an identity column hands out IDs only as each row is inserted)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "workflow_ids")
+    @SequenceGenerator(name = "workflow_ids", sequenceName = "workflow_ids", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -39,12 +54,15 @@ public class Workflow {
     @Column(nullable = false)
     private String actionType; // "SEND_EMAIL"
     
-    @Column(columnDefinition = "TEXT")
-    private String actionConfig; // JSON string with email details
+    // JSON object matching the action type's ActionConfig, validated on save
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    private String actionConfig;
     
     @Column(nullable = false)
     private boolean active = true;
     
+    @JsonIgnore // never serialize the owner (password hash, Google tokens) into workflow responses
     @ManyToOne(fetch = FetchType.LAZY) // Many workflows can belong to one user
     @JoinColumn(name = "user_id", nullable = false) // Foreign key column
     private User user;
@@ -53,9 +71,24 @@ public class Workflow {
     private LocalDateTime createdAt = LocalDateTime.now();
     
     private LocalDateTime lastRunAt;
+
+    private LocalDateTime nextRunAt; // Next scheduled fire time, null for manual or inactive workflows
+
+    private Long gmailHistoryId; // EMAIL_RECAP: Gmail history cursor the next recap continues from
+
+    private LocalDateTime recapCursorAt; // EMAIL_RECAP: when the last recap was sent
+
+    // Last change to anything the workflow list shows; with the row count it versions a user's list
+    private LocalDateTime updatedAt;
     
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
     }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.automation.taskplatform.model;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity // one queued execution of a workflow, claimed by whichever node gets to it first
+@Table(name = "workflow_jobs",
+    uniqueConstraints = {
+        // A scheduled fire time is only ever enqueued once, no matter how many nodes tick
+        @UniqueConstraint(name = "uk_workflow_jobs_workflow_scheduled", columnNames = {"workflow_id", "scheduledFor"})
+    },
+    indexes = {
+        @Index(name = "idx_workflow_jobs_claim", columnList = "status, runAt")
+    })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkflowJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "workflow_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE) // deleting a workflow drops its queued jobs
+    private Workflow workflow;
+
+    @Column(nullable = false)
+    private LocalDateTime scheduledFor; // The cron fire time (or request time for manual runs)
+
+    @Column(nullable = false)
+    private LocalDateTime runAt; // scheduledFor plus the workflow's stable jitter offset
+
+    @Column(nullable = false)
+    private String triggerType; // "SCHEDULE" or "MANUAL"
+
+    @Column(nullable = false)
+    private String status; // "PENDING", "RUNNING", "SUCCEEDED" or "FAILED"
+
+    @Column(nullable = false)
+    private int attempts;
+
+    private String lockedBy; // Node ID of the worker holding the lease
+
+    private LocalDateTime leaseExpiresAt; // Another node may reclaim the job once this passes
+
+    private LocalDateTime heartbeatAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,43 @@
+package com.automation.taskplatform.repository;
+
+import com.automation.taskplatform.model.AiSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AiSummaryRepository extends JpaRepository<AiSummary, Long> {
+
+    @Query("""
+        select s from AiSummary s
+        where s.user.id = :userId and s.promptVersion = :promptVersion
+          and s.messageId in :messageIds and s.createdAt > :createdAfter
+        """)
+    List<AiSummary> findFresh(@Param("userId") Long userId,
+                              @Param("promptVersion") String promptVersion,
+                              @Param("messageIds") Collection<String> messageIds,
+                              @Param("createdAfter") LocalDateTime createdAfter);
+
+    // A concurrent recap of the same mailbox may have stored the message first, keep that one
+    @Modifying
+    @Query(value = """
+        INSERT INTO ai_summaries (user_id, message_id, prompt_version, summary, created_at)
+        VALUES (:userId, :messageId, :promptVersion, :summary, :createdAt)
+        ON CONFLICT (user_id, message_id, prompt_version) DO NOTHING
+        """, nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId,
+                       @Param("messageId") String messageId,
+                       @Param("promptVersion") String promptVersion,
+                       @Param("summary") String summary,
+                       @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Query("delete from AiSummary s where s.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,72 @@
+package com.automation.taskplatform.repository;
+
+import com.automation.taskplatform.model.EmailOutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    // Due messages that are the oldest unsent one of their user, so each user's mail goes out in
+    // order and one at a time. Sends whose node stopped (lease expired) are due again. Rows
+    // locked by another node's claim are skipped.
+    @Query(value = """
+        SELECT * FROM email_outbox o
+        WHERE ((o.status = 'PENDING' AND o.next_attempt_at <= :now)
+            OR (o.status = 'SENDING' AND o.lease_expires_at < :now))
+          AND NOT EXISTS (
+            SELECT 1 FROM email_outbox earlier
+            WHERE earlier.user_id = o.user_id AND earlier.id < o.id
+              AND earlier.status IN ('PENDING', 'SENDING'))
+        ORDER BY o.next_attempt_at
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<EmailOutboxMessage> lockSendable(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Only the node that still holds the lease may record the outcome
+    @Modifying
+    @Query("""
+        update EmailOutboxMessage m set m.status = 'SENT', m.gmailMessageId = :gmailMessageId,
+            m.sentAt = :sentAt, m.rawMessage = null, m.leaseExpiresAt = null, m.lastError = null
+        where m.id = :id and m.lockedBy = :nodeId and m.status = 'SENDING'
+        """)
+    int markSent(@Param("id") Long id,
+                 @Param("nodeId") String nodeId,
+                 @Param("gmailMessageId") String gmailMessageId,
+                 @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query("""
+        update EmailOutboxMessage m set m.status = :status, m.nextAttemptAt = :nextAttemptAt,
+            m.lastError = :lastError, m.leaseExpiresAt = null
+        where m.id = :id and m.lockedBy = :nodeId and m.status = 'SENDING'
+        """)
+    int markFailed(@Param("id") Long id,
+                   @Param("nodeId") String nodeId,
+                   @Param("status") String status,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("lastError") String lastError);
+
+    // Hands the message back to the queue without spending one of its attempts
+    @Modifying
+    @Query("""
+        update EmailOutboxMessage m set m.status = 'PENDING', m.nextAttemptAt = :nextAttemptAt,
+            m.attempts = m.attempts - 1, m.lastError = :lastError, m.leaseExpiresAt = null
+        where m.id = :id and m.lockedBy = :nodeId and m.status = 'SENDING'
+        """)
+    int defer(@Param("id") Long id,
+              @Param("nodeId") String nodeId,
+              @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+              @Param("lastError") String lastError);
+
+    @Modifying
+    @Query("delete from EmailOutboxMessage m where m.status = :status and m.createdAt < :before")
+    int deleteByStatusCreatedBefore(@Param("status") String status, @Param("before") LocalDateTime before);
+}
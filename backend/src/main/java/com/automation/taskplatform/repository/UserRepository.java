@@ -1,22 +1,56 @@
 package com.automation.taskplatform.repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.automation.taskplatform.model.User;
 
 @Repository // Indicate that this interface is a Spring Data Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
-    // Case-insensitive email lookup
-    Optional<User> findByEmailIgnoreCase(String email);
+    // Case-insensitive email lookups, served by the lower(email) index SchemaUpgrader creates.
+    // Written out because derived IgnoreCase queries compare upper(email), which it cannot serve.
+    @Query("select u from User u where lower(u.email) = lower(:email)")
+    Optional<User> findByEmailIgnoreCase(@Param("email") String email);
 
-    boolean existsByEmailIgnoreCase(String email);
+    @Query("select count(u) > 0 from User u where lower(u.email) = lower(:email)")
+    boolean existsByEmailIgnoreCase(@Param("email") String email);
 
     // Keep original methods for backwards compatibility
     Optional<User> findByEmail(String email);
 
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    // Connected users with an active workflow due before dueBefore whose token expires before expiringBefore
+    @Query("""
+        select distinct u from Workflow w join w.user u
+        where w.active = true and w.nextRunAt <= :dueBefore
+          and u.googleRefreshToken is not null
+          and (u.googleTokenExpiry is null or u.googleTokenExpiry < :expiringBefore)
+        """)
+    List<User> findUsersWithExpiringTokens(@Param("dueBefore") LocalDateTime dueBefore,
+                                           @Param("expiringBefore") LocalDateTime expiringBefore);
+
+    // Writes only the refreshed token, and only while the refresh token it came from is still
+    // stored: never after the user disconnected or reconnected, nor over a newer token written
+    // by another node
+    @Modifying
+    @Transactional
+    @Query("""
+        update User u set u.googleAccessToken = :accessToken, u.googleTokenExpiry = :expiry
+        where u.id = :id and u.googleRefreshToken = :refreshToken
+          and (u.googleTokenExpiry is null or u.googleTokenExpiry < :expiry)
+        """)
+    int updateGoogleAccessToken(@Param("id") Long id,
+                                @Param("refreshToken") String refreshToken,
+                                @Param("accessToken") String accessToken,
+                                @Param("expiry") LocalDateTime expiry);
+}
@@ -0,0 +1,83 @@
+package com.automation.taskplatform.repository;
+
+import com.automation.taskplatform.model.WorkflowJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WorkflowJobRepository extends JpaRepository<WorkflowJob, Long> {
+
+    Optional<WorkflowJob> findByIdAndWorkflowId(Long id, Long workflowId);
+
+    // Duplicate (workflow, fire time) pairs from other nodes are silently ignored
+    @Modifying
+    @Query(value = """
+        INSERT INTO workflow_jobs (workflow_id, scheduled_for, run_at, trigger_type, status, attempts, created_at)
+        VALUES (:workflowId, :scheduledFor, :runAt, :triggerType, 'PENDING', 0, :createdAt)
+        ON CONFLICT (workflow_id, scheduled_for) DO NOTHING
+        """, nativeQuery = true)
+    int enqueue(@Param("workflowId") Long workflowId,
+                @Param("scheduledFor") LocalDateTime scheduledFor,
+                @Param("runAt") LocalDateTime runAt,
+                @Param("triggerType") String triggerType,
+                @Param("createdAt") LocalDateTime createdAt);
+
+    // Pending jobs whose jittered start time has come, plus running jobs whose node stopped heartbeating. Rows locked by
+    // another node's claim are skipped rather than waited on.
+    @Query(value = """
+        SELECT * FROM workflow_jobs
+        WHERE (status = 'PENDING' AND run_at <= :now)
+           OR (status = 'RUNNING' AND lease_expires_at < :now)
+        ORDER BY run_at
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<WorkflowJob> lockClaimable(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("""
+        update WorkflowJob j set j.leaseExpiresAt = :leaseExpiresAt, j.heartbeatAt = :now
+        where j.id in :ids and j.lockedBy = :nodeId and j.status = 'RUNNING'
+        """)
+    int extendLeases(@Param("ids") Collection<Long> ids,
+                     @Param("nodeId") String nodeId,
+                     @Param("now") LocalDateTime now,
+                     @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+    // Only the node that still holds the lease may record the outcome
+    @Modifying
+    @Query("""
+        update WorkflowJob j set j.status = :status, j.errorMessage = :errorMessage,
+            j.finishedAt = :finishedAt, j.leaseExpiresAt = null
+        where j.id = :id and j.lockedBy = :nodeId
+        """)
+    int complete(@Param("id") Long id,
+                 @Param("nodeId") String nodeId,
+                 @Param("status") String status,
+                 @Param("errorMessage") String errorMessage,
+                 @Param("finishedAt") LocalDateTime finishedAt);
+
+    // Hands the job back to the queue without spending one of its attempts
+    @Modifying
+    @Query("""
+        update WorkflowJob j set j.status = 'PENDING', j.runAt = :runAt, j.attempts = j.attempts - 1,
+            j.errorMessage = :reason, j.lockedBy = null, j.leaseExpiresAt = null
+        where j.id = :id and j.lockedBy = :nodeId and j.status = 'RUNNING'
+        """)
+    int defer(@Param("id") Long id,
+              @Param("nodeId") String nodeId,
+              @Param("runAt") LocalDateTime runAt,
+              @Param("reason") String reason);
+
+    @Modifying
+    @Query("delete from WorkflowJob j where j.status in ('SUCCEEDED', 'FAILED') and j.finishedAt < :before")
+    int deleteFinishedBefore(@Param("before") LocalDateTime before);
+}
@@ -1,18 +1,87 @@
 package com.automation.taskplatform.repository;
 
-import com.automation.taskplatform.model.User;
+import com.automation.taskplatform.dto.WorkflowResponse;
 import com.automation.taskplatform.model.Workflow;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface WorkflowRepository extends JpaRepository<Workflow, Long> {
-    
-    List<Workflow> findByUser(User user);
-    
-    List<Workflow> findByUserAndActiveTrue(User user);
-    
-    List<Workflow> findByActiveTrueAndTriggerType(String triggerType);
-}
\ No newline at end of file
+
+    // One keyset page of a user's workflows, projected straight into the response DTO so
+    // neither the entity nor its user is loaded
+    @Query("""
+        select new com.automation.taskplatform.dto.WorkflowResponse(w.id, w.name, w.triggerType, w.cronExpression,
+            w.actionType, w.actionConfig, w.active, w.createdAt, w.lastRunAt, w.nextRunAt, w.updatedAt)
+        from Workflow w
+        where w.user.id = :userId and w.id > :afterId
+        order by w.id
+        """)
+    List<WorkflowResponse> findPageByUserId(@Param("userId") Long userId, @Param("afterId") long afterId, Limit limit);
+
+    // Changes whenever a workflow of the user is created, edited, run or deleted
+    @Query("select count(w) as count, max(w.updatedAt) as lastUpdatedAt from Workflow w where w.user.id = :userId")
+    ListVersion findListVersion(@Param("userId") Long userId);
+
+    // Served by idx_workflows_due so a tick only touches workflows that are due. Rows another
+    // node is already enqueuing are skipped, so each fire time is claimed by exactly one node.
+    @Query(value = """
+        SELECT * FROM workflows
+        WHERE trigger_type = 'SCHEDULE' AND active = true AND next_run_at <= :now
+        ORDER BY next_run_at
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<Workflow> lockDueWorkflows(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    List<Workflow> findByTriggerTypeAndActiveTrueAndNextRunAtIsNull(String triggerType);
+
+    Optional<Workflow> findByIdAndUserId(Long id, Long userId);
+
+    @Query("select w from Workflow w join fetch w.user where w.id = :id")
+    Optional<Workflow> findWithUserById(@Param("id") Long id);
+
+    // Targeted update so a run finishing never overwrites edits made while it was executing. The
+    // schedule is advanced when the run is enqueued, never here.
+    @Modifying
+    @Transactional
+    @Query("update Workflow w set w.lastRunAt = :lastRunAt, w.updatedAt = :lastRunAt where w.id = :id")
+    int markExecuted(@Param("id") Long id, @Param("lastRunAt") LocalDateTime lastRunAt);
+
+    @Modifying
+    @Transactional
+    @Query("update Workflow w set w.gmailHistoryId = :historyId, w.recapCursorAt = :cursorAt where w.id = :id")
+    int updateRecapCursor(@Param("id") Long id, @Param("historyId") Long historyId, @Param("cursorAt") LocalDateTime cursorAt);
+
+    // Stops scheduling a workflow that can never run, e.g. because its stored config is invalid
+    @Modifying
+    @Transactional
+    @Query("update Workflow w set w.active = false, w.nextRunAt = null, w.updatedAt = :now where w.id = :id")
+    int deactivate(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // The given workflows that belong to the user; bulk changes never touch another user's rows
+    List<Workflow> findByUserIdAndIdIn(Long userId, Collection<Long> ids);
+
+    @Modifying
+    @Transactional
+    @Query("""
+        update Workflow w set w.active = false, w.nextRunAt = null, w.updatedAt = :now
+        where w.user.id = :userId and w.id in :ids and w.active = true
+        """)
+    int deactivateAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    interface ListVersion {
+        long getCount();
+        LocalDateTime getLastUpdatedAt();
+    }
+}
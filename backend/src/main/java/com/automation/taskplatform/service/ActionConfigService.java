@@ -0,0 +1,153 @@
+package com.automation.taskplatform.service;
+
+import com.automation.taskplatform.model.ActionConfig;
+import com.automation.taskplatform.model.Workflow;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+
+// Parses Workflow.actionConfig into its typed record and resolves the email template it selects.
+// Workflows are validated this way when they are saved; executions reuse the compiled form,
+// cached per workflow for as long as its stored config is unchanged.
+@Service
+public class ActionConfigService {
+
+    public static final int DEFAULT_HOURS_BACK = 18;
+    public static final int MAX_HOURS_BACK = 24 * 7;
+    private static final String DEFAULT_REMINDER_SUBJECT = "Reminder from TaskFlow";
+
+    private final EmailTemplateService emailTemplateService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Compiled configs by workflow ID
+    private final LruCache<Long, CompiledAction> compiled;
+
+    public ActionConfigService(
+            EmailTemplateService emailTemplateService,
+            @Value("${workflow.action-config-cache-size:10000}") int cacheSize) {
+        this.emailTemplateService = emailTemplateService;
+        this.compiled = new LruCache<>(cacheSize);
+    }
+
+    // Throws if the config is not valid for the action type
+    public CompiledAction validate(String actionType, String actionConfig) {
+        ActionConfig config = parse(actionType, actionConfig);
+        return new CompiledAction(actionType, actionConfig, config,
+            emailTemplateService.resolve(actionType, config.template(), config.customTemplate()));
+    }
+
+    // The workflow's compiled config, parsed at most once per stored version of it
+    public CompiledAction compile(Workflow workflow) {
+        CompiledAction cached = compiled.get(workflow.getId());
+        if (cached != null && cached.matches(workflow)) {
+            return cached;
+        }
+        CompiledAction action = validate(workflow.getActionType(), workflow.getActionConfig());
+        compiled.put(workflow.getId(), action);
+        return action;
+    }
+
+    public void evict(Long workflowId) {
+        compiled.remove(workflowId);
+    }
+
+    private ActionConfig parse(String actionType, String actionConfig) {
+        JsonNode json = readObject(actionConfig);
+        return switch (actionType == null ? "" : actionType) {
+            case "EMAIL_RECAP" -> new ActionConfig.EmailRecap(
+                hoursBack(json.path("hoursBack")),
+                text(json, "template"),
+                text(json, "customTemplate"));
+            case "SEND_EMAIL" -> new ActionConfig.SendEmail(
+                recipient(text(json, "to")),
+                orDefault(subject(text(json, "subject")), DEFAULT_REMINDER_SUBJECT),
+                orDefault(text(json, "body"), ""),
+                text(json, "template"),
+                text(json, "customTemplate"));
+            default -> throw new RuntimeException("Invalid action type: " + actionType);
+        };
+    }
+
+    // A missing config is an empty object, so every field takes its default
+    private JsonNode readObject(String actionConfig) {
+        if (actionConfig == null || actionConfig.isBlank()) {
+            return objectMapper.createObjectNode();
+        }
+        try {
+            JsonNode json = objectMapper.readTree(actionConfig);
+            if (!json.isObject()) {
+                throw new RuntimeException("Invalid action configuration: expected a JSON object");
+            }
+            return json;
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Invalid action configuration: " + e.getOriginalMessage());
+        }
+    }
+
+    // The form sends numbers from a select, so numeric strings are accepted too
+    private static int hoursBack(JsonNode value) {
+        if (value.isMissingNode() || value.isNull()) {
+            return DEFAULT_HOURS_BACK;
+        }
+        int hours;
+        if (value.canConvertToInt() && value.isIntegralNumber()) {
+            hours = value.intValue();
+        } else {
+            try {
+                hours = Integer.parseInt(value.asText().trim());
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Invalid action configuration: hoursBack must be a whole number");
+            }
+        }
+        if (hours < 1 || hours > MAX_HOURS_BACK) {
+            throw new RuntimeException("Invalid action configuration: hoursBack must be between 1 and " + MAX_HOURS_BACK);
+        }
+        return hours;
+    }
+
+    private static String recipient(String to) {
+        if (to == null) {
+            return null;
+        }
+        try {
+            new InternetAddress(to, true).validate();
+            return to;
+        } catch (AddressException e) {
+            throw new RuntimeException("Invalid action configuration: '" + to + "' is not an email address");
+        }
+    }
+
+    // A line break in a header value would start a new header, e.g. an injected Bcc
+    private static String subject(String subject) {
+        if (subject != null && (subject.indexOf('\r') >= 0 || subject.indexOf('\n') >= 0)) {
+            throw new RuntimeException("Invalid action configuration: subject must be a single line");
+        }
+        return subject;
+    }
+
+    // Blank and non-text values count as missing
+    private static String text(JsonNode json, String field) {
+        JsonNode value = json.path(field);
+        if (!value.isTextual() || value.asText().isBlank()) {
+            return null;
+        }
+        return value.asText().trim();
+    }
+
+    private static String orDefault(String value, String fallback) {
+        return value != null ? value : fallback;
+    }
+
+    public record CompiledAction(String actionType, String actionConfig, ActionConfig config, EmailTemplate template) {
+
+        boolean matches(Workflow workflow) {
+            return actionType.equals(workflow.getActionType()) && Objects.equals(actionConfig, workflow.getActionConfig());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.automation.taskplatform.service;
+
+import com.automation.taskplatform.model.AiSummary;
+import com.automation.taskplatform.repository.AiSummaryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Two tiers in front of OpenAI: an in-memory LRU for this node and the ai_summaries table
+// shared by all nodes. Entries expire after the TTL in both tiers. Failures in the database
+// tier only cost a cache miss, never the recap.
+@Service
+public class AiSummaryCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AiSummaryCache.class);
+
+    private final AiSummaryRepository aiSummaryRepository;
+    private final LruCache<String, Entry> memory;
+    private final int ttlDays;
+
+    public AiSummaryCache(
+            AiSummaryRepository aiSummaryRepository,
+            @Value("${openai.summary.cache-size:10000}") int cacheSize,
+            @Value("${openai.summary.cache-ttl-days:30}") int ttlDays) {
+        this.aiSummaryRepository = aiSummaryRepository;
+        this.memory = new LruCache<>(cacheSize);
+        this.ttlDays = ttlDays;
+    }
+
+    // Cached summaries for the given messages, keyed by message ID; misses are left out
+    public Map<String, String> getAll(Long userId, String promptVersion, Collection<String> messageIds) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, String> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+
+        for (String messageId : messageIds) {
+            Entry entry = memory.get(key(userId, promptVersion, messageId));
+            if (entry != null && entry.expiresAt().isAfter(now)) {
+                found.put(messageId, entry.summary());
+            } else {
+                missing.add(messageId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        try {
+            for (AiSummary stored : aiSummaryRepository.findFresh(userId, promptVersion, missing, now.minusDays(ttlDays))) {
+                found.put(stored.getMessageId(), stored.getSummary());
+                memory.put(key(userId, promptVersion, stored.getMessageId()),
+                        new Entry(stored.getSummary(), stored.getCreatedAt().plusDays(ttlDays)));
+            }
+        } catch (Exception e) {
+            log.warn("Could not read cached AI summaries for user {}: {}", userId, e.getMessage());
+        }
+        return found;
+    }
+
+    // Stores in both tiers in one transaction; callers treat a failure as a skipped cache write
+    @Transactional
+    public void putAll(Long userId, String promptVersion, Map<String, String> summaries) {
+        LocalDateTime now = LocalDateTime.now();
+        summaries.forEach((messageId, summary) -> {
+            memory.put(key(userId, promptVersion, messageId), new Entry(summary, now.plusDays(ttlDays)));
+            aiSummaryRepository.insertIfAbsent(userId, messageId, promptVersion, summary, now);
+        });
+    }
+
+    @Scheduled(cron = "0 45 3 * * *")
+    @Transactional
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        memory.removeIf(entry -> !entry.expiresAt().isAfter(now));
+        int deleted = aiSummaryRepository.deleteCreatedBefore(now.minusDays(ttlDays));
+        log.info("Purged {} expired AI summaries", deleted);
+    }
+
+    private static String key(Long userId, String promptVersion, String messageId) {
+        return userId + ":" + promptVersion + ":" + messageId;
+    }
+
+    private record Entry(String summary, LocalDateTime expiresAt) {}
+}
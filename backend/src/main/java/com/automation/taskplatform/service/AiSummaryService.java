@@ -4,26 +4,73 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Service
 public class AiSummaryService {
 
     private static final Logger log = LoggerFactory.getLogger(AiSummaryService.class);
     private static final String OPENAI_API_URL = "https://api.openai.com/v1/chat/completions";
+    private static final String SYSTEM_PROMPT = "You are a concise email summarizer. Respond with only the summary, no extra text.";
+    private static final String BATCH_SYSTEM_PROMPT = "You are a concise email summarizer. Respond with only the requested JSON, no extra text.";
+    private static final String MODEL = "gpt-4o-mini";
+    private static final String EMAIL_PROMPT =
+        "Summarize this email in 1 concise sentence. If there's an action item or deadline, mention it.\n\n" +
+        "From: %s\n" +
+        "Subject: %s\n" +
+        "Preview: %s";
+    private static final String BATCH_PROMPT =
+        "Summarize each of the following emails in 1 concise sentence. If there's an action item or deadline, mention it.\n" +
+        "Respond with a JSON object of the form {\"summaries\": [{\"id\": <email id>, \"summary\": \"...\"}]} " +
+        "containing exactly one entry per email.\n";
+    private static final int MAX_COMPLETION_TOKENS = 100;
+
+    // Cached summaries are only reused while the model and prompts that produced them are unchanged
+    static final String PROMPT_VERSION = promptVersion(MODEL, SYSTEM_PROMPT, BATCH_SYSTEM_PROMPT, EMAIL_PROMPT, BATCH_PROMPT);
 
     @Value("${openai.api.key:}")
     private String apiKey;
 
+    // Emails packed into one chat completion; 1 sends every email on its own
+    @Value("${openai.summary.batch-size:10}")
+    private int batchSize = 10;
+
     private final RestTemplate restTemplate = new RestTemplate();
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OpenAiRateLimiter rateLimiter;
+    private final Executor summaryExecutor;
+    private final AiSummaryCache summaryCache;
+    private final UpstreamGuard openAiGuard;
+
+    public AiSummaryService(
+            OpenAiRateLimiter rateLimiter,
+            @Qualifier("aiSummaryExecutor") Executor summaryExecutor,
+            AiSummaryCache summaryCache,
+            @Qualifier("openAiGuard") UpstreamGuard openAiGuard) {
+        this.rateLimiter = rateLimiter;
+        this.summaryExecutor = summaryExecutor;
+        this.summaryCache = summaryCache;
+        this.openAiGuard = openAiGuard;
+    }
 
     @PostConstruct
     public void init() {
@@ -38,36 +85,209 @@ public class AiSummaryService {
         return apiKey != null && !apiKey.isEmpty();
     }
 
+    // Summaries for a user's emails in the same order, null where none could be generated. Emails
+    // summarized before (by this or another recap) come from the cache; only the rest reach OpenAI.
+    public List<String> summarizeEmails(Long userId, List<EmailInfo> emails) {
+        if (!isEnabled() || emails.isEmpty()) {
+            return Collections.nCopies(emails.size(), null);
+        }
+        // While OpenAI is down the recap goes out without summaries instead of waiting on it
+        if (openAiGuard.isOpen()) {
+            log.debug("OpenAI circuit open, skipping {} summaries", emails.size());
+            return Collections.nCopies(emails.size(), null);
+        }
+
+        Map<String, String> cached = summaryCache.getAll(userId, PROMPT_VERSION, emails.stream()
+            .map(EmailInfo::messageId).filter(Objects::nonNull).toList());
+
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < emails.size(); i++) {
+            if (!cached.containsKey(emails.get(i).messageId())) {
+                missing.add(i);
+            }
+        }
+        log.debug("AI summary cache: {} hits, {} misses", emails.size() - missing.size(), missing.size());
+
+        List<String> generated = missing.isEmpty() ? List.of()
+            : summarizeConcurrently(missing.stream().map(emails::get).toList());
+
+        Map<String, String> toCache = new HashMap<>();
+        String[] results = new String[emails.size()];
+        for (int i = 0; i < emails.size(); i++) {
+            results[i] = cached.get(emails.get(i).messageId());
+        }
+        for (int i = 0; i < missing.size(); i++) {
+            EmailInfo email = emails.get(missing.get(i));
+            results[missing.get(i)] = generated.get(i);
+            if (email.messageId() != null && generated.get(i) != null) {
+                toCache.put(email.messageId(), generated.get(i));
+            }
+        }
+
+        if (!toCache.isEmpty()) {
+            try {
+                summaryCache.putAll(userId, PROMPT_VERSION, toCache);
+            } catch (Exception e) {
+                log.warn("Could not cache AI summaries for user {}: {}", userId, e.getMessage());
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    // Summarizes every email concurrently on the shared pool, several emails per request
+    private List<String> summarizeConcurrently(List<EmailInfo> emails) {
+        String[] results = new String[emails.size()];
+        int size = Math.max(1, batchSize);
+
+        List<Integer> batchStarts = new ArrayList<>();
+        List<CompletableFuture<List<String>>> batches = new ArrayList<>();
+        for (int start = 0; start < emails.size(); start += size) {
+            List<EmailInfo> batch = emails.subList(start, Math.min(start + size, emails.size()));
+            batchStarts.add(start);
+            batches.add(CompletableFuture.supplyAsync(
+                () -> batch.size() == 1 ? Collections.singletonList(summarize(batch.get(0))) : summarizeBatch(batch),
+                summaryExecutor));
+        }
+
+        // Batches whose reply could not be used are retried one email per request
+        List<Integer> retry = new ArrayList<>();
+        for (int b = 0; b < batches.size(); b++) {
+            int start = batchStarts.get(b);
+            int end = Math.min(start + size, emails.size());
+            List<String> summaries = batches.get(b).join();
+            for (int i = start; i < end; i++) {
+                if (summaries == null) {
+                    retry.add(i);
+                } else {
+                    results[i] = summaries.get(i - start);
+                }
+            }
+        }
+
+        if (!retry.isEmpty() && !openAiGuard.isOpen()) {
+            List<CompletableFuture<String>> singles = retry.stream()
+                .map(i -> CompletableFuture.supplyAsync(() -> summarize(emails.get(i)), summaryExecutor))
+                .toList();
+            for (int i = 0; i < retry.size(); i++) {
+                results[retry.get(i)] = singles.get(i).join();
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    // One request for the whole batch, answered as a JSON array of summaries in input order.
+    // Returns null when the reply is truncated or does not match the batch, so the caller can
+    // fall back to per-email requests. When the request itself fails (429, 5xx, transport, guard)
+    // the batch stays without summaries: splitting it up would only send OpenAI more requests
+    // while it is asking for fewer.
+    private List<String> summarizeBatch(List<EmailInfo> batch) {
+        List<String> unsummarized = Collections.nCopies(batch.size(), null);
+        String body;
+        try {
+            StringBuilder prompt = new StringBuilder(BATCH_PROMPT);
+            for (int i = 0; i < batch.size(); i++) {
+                EmailInfo email = batch.get(i);
+                prompt.append("\nEmail id: ").append(i + 1)
+                    .append("\nFrom: ").append(email.from())
+                    .append("\nSubject: ").append(email.subject())
+                    .append("\nPreview: ").append(email.snippet())
+                    .append('\n');
+            }
+
+            int maxTokens = MAX_COMPLETION_TOKENS * batch.size();
+            rateLimiter.acquire((BATCH_SYSTEM_PROMPT.length() + prompt.length()) / 4 + maxTokens);
+
+            Map<String, Object> requestBody = Map.of(
+                "model", MODEL,
+                "messages", List.of(
+                    Map.of("role", "system", "content", BATCH_SYSTEM_PROMPT),
+                    Map.of("role", "user", "content", prompt.toString())
+                ),
+                "response_format", Map.of("type", "json_object"),
+                "max_tokens", maxTokens,
+                "temperature", 0.3
+            );
+
+            ResponseEntity<String> response = openAiGuard.call(null, 1,
+                () -> restTemplate.postForEntity(OPENAI_API_URL, jsonRequest(requestBody), String.class));
+            if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
+                return unsummarized;
+            }
+            body = response.getBody();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return unsummarized;
+        } catch (Exception e) {
+            log.warn("Batch summary request for {} emails failed, sending them without summaries: {}",
+                    batch.size(), e.getMessage());
+            return unsummarized;
+        }
+
+        try {
+            JsonNode choice = objectMapper.readTree(body).path("choices").path(0);
+            if ("length".equals(choice.path("finish_reason").asText())) {
+                log.warn("Batch summary of {} emails was truncated, falling back to per-email requests", batch.size());
+                return null;
+            }
+
+            JsonNode entries = objectMapper.readTree(choice.path("message").path("content").asText()).path("summaries");
+            String[] summaries = new String[batch.size()];
+            for (JsonNode entry : entries) {
+                int index = entry.path("id").asInt() - 1;
+                String summary = entry.path("summary").asText("").trim();
+                if (index >= 0 && index < summaries.length && !summary.isEmpty()) {
+                    summaries[index] = summary;
+                }
+            }
+            if (Arrays.asList(summaries).contains(null)) {
+                log.warn("Batch summary reply did not cover all {} emails, falling back to per-email requests", batch.size());
+                return null;
+            }
+            return Arrays.asList(summaries);
+
+        } catch (Exception e) {
+            log.warn("Could not parse batch summary of {} emails, falling back to per-email requests: {}",
+                    batch.size(), e.getMessage());
+            return null;
+        }
+    }
+
+    private String summarize(EmailInfo email) {
+        return summarizeEmail(email.from(), email.subject(), email.snippet());
+    }
+
+    private HttpEntity<Map<String, Object>> jsonRequest(Map<String, Object> body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(apiKey);
+        return new HttpEntity<>(body, headers);
+    }
+
     public String summarizeEmail(String from, String subject, String snippet) {
         if (!isEnabled()) {
             return null;
         }
 
         try {
-            String prompt = String.format(
-                "Summarize this email in 1 concise sentence. If there's an action item or deadline, mention it.\n\n" +
-                "From: %s\n" +
-                "Subject: %s\n" +
-                "Preview: %s",
-                from, subject, snippet
-            );
+            String prompt = String.format(EMAIL_PROMPT, from, subject, snippet);
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
+            // Rough token estimate (~4 characters per token) plus the completion budget
+            rateLimiter.acquire((SYSTEM_PROMPT.length() + prompt.length()) / 4 + MAX_COMPLETION_TOKENS);
 
             Map<String, Object> requestBody = Map.of(
-                "model", "gpt-4o-mini",
+                "model", MODEL,
                 "messages", List.of(
-                    Map.of("role", "system", "content", "You are a concise email summarizer. Respond with only the summary, no extra text."),
+                    Map.of("role", "system", "content", SYSTEM_PROMPT),
                     Map.of("role", "user", "content", prompt)
                 ),
-                "max_tokens", 100,
+                "max_tokens", MAX_COMPLETION_TOKENS,
                 "temperature", 0.3
             );
 
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-            ResponseEntity<String> response = restTemplate.postForEntity(OPENAI_API_URL, request, String.class);
+            ResponseEntity<String> response = openAiGuard.call(null, 1,
+                () -> restTemplate.postForEntity(OPENAI_API_URL, jsonRequest(requestBody), String.class));
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 JsonNode root = objectMapper.readTree(response.getBody());
@@ -76,11 +296,26 @@ public class AiSummaryService {
                 return summary;
             }
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             log.error("Failed to generate AI summary for email '{}': {}", subject, e.getMessage());
         }
         return null;
     }
 
-    public record EmailInfo(String from, String subject, String snippet) {}
+    private static String promptVersion(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest()).substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record EmailInfo(String messageId, String from, String subject, String snippet) {}
 }
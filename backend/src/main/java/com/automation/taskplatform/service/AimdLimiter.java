@@ -0,0 +1,69 @@
+package com.automation.taskplatform.service;
+
+import java.util.function.LongSupplier;
+
+// Concurrency limit that adapts like TCP congestion control: it grows by about one slot per
+// limit's worth of successful calls and is cut multiplicatively when the upstream signals
+// overload (429 or 5xx), so in-flight calls settle just under what the upstream accepts.
+public class AimdLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final LongSupplier nanoClock;
+
+    private double limit;
+    private int inFlight;
+
+    public AimdLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio) {
+        this(initialLimit, minLimit, maxLimit, backoffRatio, System::nanoTime);
+    }
+
+    // nanoClock stands in for System.nanoTime(), e.g. a manual clock in tests
+    AimdLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    // Waits until a slot is free; false if none freed up before the deadline (on nanoClock)
+    public synchronized boolean acquire(long deadlineNanos) throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            long waitMillis = (deadlineNanos - nanoClock.getAsLong()) / 1_000_000;
+            if (waitMillis <= 0) {
+                return false;
+            }
+            wait(waitMillis);
+        }
+        inFlight++;
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        inFlight--;
+        limit = Math.min(maxLimit, limit + 1 / limit);
+        notifyAll();
+    }
+
+    public synchronized void onOverload() {
+        inFlight--;
+        limit = Math.max(minLimit, limit * backoffRatio);
+        notifyAll();
+    }
+
+    // Releases the slot without adjusting the limit
+    public synchronized void onIgnored() {
+        inFlight--;
+        notifyAll();
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+}
@@ -42,7 +42,7 @@ import java.util.Optional;
                                                                                                                                                     
                                                                                                                                                             
         // 4. Generate token                                                                                                                              
-        String token = jwtService.generateToken(user.getEmail());                                                                                                    
+        String token = jwtService.generateToken(user);                                                                                                    
                                                                                                                                                             
         // 5. Return response                                                                                                                             
         return new LoginResponse(token, user.getEmail(), user.getFirstName(), user.getLastName());                                                        
@@ -60,7 +60,7 @@ import java.util.Optional;
         
 
         // Generate token for the new user
-        String token = jwtService.generateToken(savedUser.getEmail());
+        String token = jwtService.generateToken(savedUser);
 
         return token;
     }
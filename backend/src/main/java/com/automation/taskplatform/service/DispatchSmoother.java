@@ -0,0 +1,59 @@
+package com.automation.taskplatform.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+// Spreads bursts of round-minute schedules (e.g. everyone at 9:00) over a jitter window and
+// caps how fast this node starts executions, so Gmail and OpenAI see a smooth rate
+@Component
+public class DispatchSmoother {
+
+    private final int jitterWindowSeconds;
+    private final TokenBucket dispatchRate; // null means no rate target
+
+    @Autowired
+    public DispatchSmoother(
+            @Value("${workflow.dispatch.jitter-window-seconds:60}") int jitterWindowSeconds,
+            @Value("${workflow.dispatch.max-per-second:0}") double maxPerSecond) {
+        this(jitterWindowSeconds, maxPerSecond > 0 ? new TokenBucket(Math.max(1, maxPerSecond), maxPerSecond) : null);
+    }
+
+    DispatchSmoother(int jitterWindowSeconds, TokenBucket dispatchRate) {
+        this.jitterWindowSeconds = Math.max(0, jitterWindowSeconds);
+        this.dispatchRate = dispatchRate;
+    }
+
+    // The same workflow always lands on the same offset, so its delivery time stays predictable
+    public int offsetSeconds(Long workflowId) {
+        if (jitterWindowSeconds == 0) {
+            return 0;
+        }
+        return (int) Math.floorMod(mix(workflowId), (long) jitterWindowSeconds);
+    }
+
+    public LocalDateTime runAt(Long workflowId, LocalDateTime scheduledFor) {
+        return scheduledFor.plusSeconds(offsetSeconds(workflowId));
+    }
+
+    // How many of the wanted executions may start right now under the rate target
+    public int acquireDispatchPermits(int wanted) {
+        return dispatchRate == null ? wanted : dispatchRate.acquireUpTo(wanted);
+    }
+
+    public void releaseDispatchPermits(int unused) {
+        if (dispatchRate != null && unused > 0) {
+            dispatchRate.release(unused);
+        }
+    }
+
+    // SplitMix64 finalizer, so neighbouring IDs get unrelated offsets
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
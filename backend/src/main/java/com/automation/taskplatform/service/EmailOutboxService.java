@@ -0,0 +1,135 @@
+package com.automation.taskplatform.service;
+
+import com.automation.taskplatform.model.EmailOutboxMessage;
+import com.automation.taskplatform.repository.EmailOutboxRepository;
+import com.automation.taskplatform.repository.UserRepository;
+import com.automation.taskplatform.repository.WorkflowRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Database side of outgoing mail: executions enqueue rendered messages in their own commit and
+// send workers on any node claim them under a lease, retrying with exponential backoff until
+// the message is sent or dead-lettered
+@Service
+public class EmailOutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxService.class);
+    // Matches the length of EmailOutboxMessage.subject
+    private static final int MAX_SUBJECT_LENGTH = 1000;
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final UserRepository userRepository;
+    private final WorkflowRepository workflowRepository;
+
+    @Value("${email.outbox.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${email.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.initial-backoff-seconds:30}")
+    private long initialBackoffSeconds;
+
+    @Value("${email.outbox.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    public EmailOutboxService(
+            EmailOutboxRepository emailOutboxRepository,
+            UserRepository userRepository,
+            WorkflowRepository workflowRepository) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.userRepository = userRepository;
+        this.workflowRepository = workflowRepository;
+    }
+
+    // Joins the caller's transaction, so the message is queued exactly when the caller commits
+    @Transactional
+    public EmailOutboxMessage enqueue(Long userId, Long workflowId, String recipient, String subject, byte[] rawMessage) {
+        EmailOutboxMessage message = new EmailOutboxMessage();
+        message.setUser(userRepository.getReferenceById(userId));
+        message.setWorkflow(workflowId != null ? workflowRepository.getReferenceById(workflowId) : null);
+        message.setRecipient(recipient);
+        // Only kept for listing; the full subject is in rawMessage
+        message.setSubject(subject.length() > MAX_SUBJECT_LENGTH ? subject.substring(0, MAX_SUBJECT_LENGTH) : subject);
+        message.setRawMessage(rawMessage);
+        message.setStatus("PENDING");
+        message.setNextAttemptAt(LocalDateTime.now());
+        return emailOutboxRepository.save(message);
+    }
+
+    @Transactional
+    public List<ClaimedEmail> claim(String nodeId, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ClaimedEmail> claimed = new ArrayList<>();
+
+        for (EmailOutboxMessage message : emailOutboxRepository.lockSendable(now, limit)) {
+            if ("SENDING".equals(message.getStatus())) {
+                log.warn("Reclaiming outbox message {} from node {} (lease expired at {})",
+                        message.getId(), message.getLockedBy(), message.getLeaseExpiresAt());
+            }
+            message.setStatus("SENDING");
+            message.setLockedBy(nodeId);
+            message.setAttempts(message.getAttempts() + 1);
+            message.setLeaseExpiresAt(now.plusSeconds(leaseSeconds));
+            claimed.add(new ClaimedEmail(message.getId(), message.getUser().getId(), message.getAttempts()));
+        }
+        return claimed;
+    }
+
+    public EmailOutboxMessage getMessage(Long id) {
+        return emailOutboxRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Outbox message not found"));
+    }
+
+    @Transactional
+    public void markSent(String nodeId, Long id, String gmailMessageId) {
+        if (emailOutboxRepository.markSent(id, nodeId, gmailMessageId, LocalDateTime.now()) == 0) {
+            log.warn("Outbox message {} was reclaimed by another node before it was marked sent here", id);
+        }
+    }
+
+    // Schedules another attempt after an exponentially growing, jittered delay, or dead-letters
+    // the message when the error is permanent or it has run out of attempts
+    @Transactional
+    public void markFailed(String nodeId, ClaimedEmail email, String error, boolean permanent) {
+        LocalDateTime now = LocalDateTime.now();
+        if (permanent || email.attempts() >= maxAttempts) {
+            log.error("Outbox message {} dead-lettered after {} attempts: {}", email.id(), email.attempts(), error);
+            emailOutboxRepository.markFailed(email.id(), nodeId, "DEAD", now, error);
+            return;
+        }
+
+        long jittered = retryDelaySeconds(email.attempts(), ThreadLocalRandom.current().nextDouble());
+        log.warn("Outbox message {} failed (attempt {}), retrying in {} s: {}", email.id(), email.attempts(), jittered, error);
+        emailOutboxRepository.markFailed(email.id(), nodeId, "PENDING", now.plusSeconds(jittered), error);
+    }
+
+    // Doubles per attempt up to the cap; jitter in [0, 1) picks a point in the upper half so
+    // messages that failed together do not all retry together
+    long retryDelaySeconds(int attempts, double jitter) {
+        long backoff = Math.min(maxBackoffSeconds, initialBackoffSeconds << Math.min(attempts - 1, 20));
+        return backoff / 2 + (long) (jitter * (backoff / 2 + 1));
+    }
+
+    // Gmail was unavailable, so the send was never attempted; retry once it is expected back
+    @Transactional
+    public void defer(String nodeId, ClaimedEmail email, LocalDateTime retryAt, String reason) {
+        emailOutboxRepository.defer(email.id(), nodeId, retryAt, reason);
+    }
+
+    @Transactional
+    public int purge(LocalDateTime sentBefore, LocalDateTime deadBefore) {
+        return emailOutboxRepository.deleteByStatusCreatedBefore("SENT", sentBefore)
+             + emailOutboxRepository.deleteByStatusCreatedBefore("DEAD", deadBefore);
+    }
+
+    public record ClaimedEmail(Long id, Long userId, int attempts) {}
+}
@@ -0,0 +1,117 @@
+package com.automation.taskplatform.service;
+
+import com.automation.taskplatform.exception.UpstreamUnavailableException;
+import com.automation.taskplatform.model.EmailOutboxMessage;
+import com.automation.taskplatform.model.User;
+import com.automation.taskplatform.service.EmailOutboxService.ClaimedEmail;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+// Drains the email outbox on its own pool, so send throughput is tuned separately from
+// workflow execution and a slow Gmail send never holds up an execution
+@Service
+public class EmailOutboxWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxWorker.class);
+
+    private final EmailOutboxService emailOutboxService;
+    private final UserService userService;
+    private final GmailService gmailService;
+    private final Executor emailSendExecutor;
+    private final UpstreamGuard gmailGuard;
+    private final int maxConcurrency;
+    private final String nodeId;
+
+    @Value("${email.outbox.sent-retention-days:7}")
+    private int sentRetentionDays;
+
+    @Value("${email.outbox.dead-retention-days:30}")
+    private int deadRetentionDays;
+
+    private final Set<Long> sending = ConcurrentHashMap.newKeySet();
+
+    public EmailOutboxWorker(
+            EmailOutboxService emailOutboxService,
+            UserService userService,
+            GmailService gmailService,
+            @Qualifier("emailSendExecutor") Executor emailSendExecutor,
+            @Qualifier("gmailGuard") UpstreamGuard gmailGuard,
+            @Value("${email.outbox.max-concurrency:8}") int maxConcurrency,
+            NodeIdentity nodeIdentity) {
+        this.emailOutboxService = emailOutboxService;
+        this.userService = userService;
+        this.gmailService = gmailService;
+        this.emailSendExecutor = emailSendExecutor;
+        this.gmailGuard = gmailGuard;
+        this.maxConcurrency = maxConcurrency;
+        this.nodeId = nodeIdentity.id();
+    }
+
+    // Leaves the outbox untouched while Gmail's circuit is open
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:1000}")
+    public void pollOutbox() {
+        int capacity = maxConcurrency - sending.size();
+        if (capacity <= 0 || gmailGuard.isOpen()) {
+            return;
+        }
+
+        List<ClaimedEmail> claimed = emailOutboxService.claim(nodeId, capacity);
+        for (ClaimedEmail email : claimed) {
+            sending.add(email.id());
+            emailSendExecutor.execute(() -> send(email));
+        }
+    }
+
+    @Scheduled(cron = "0 40 3 * * *")
+    public void purgeOutbox() {
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = emailOutboxService.purge(now.minusDays(sentRetentionDays), now.minusDays(deadRetentionDays));
+        log.info("Purged {} sent and dead-lettered outbox messages", deleted);
+    }
+
+    private void send(ClaimedEmail email) {
+        try {
+            EmailOutboxMessage message = emailOutboxService.getMessage(email.id());
+            User user = userService.getUser(email.userId());
+
+            String gmailMessageId = gmailService.sendRawMessage(user, message.getRawMessage());
+            emailOutboxService.markSent(nodeId, email.id(), gmailMessageId);
+            log.info("Sent outbox message {} to {}", email.id(), message.getRecipient());
+        } catch (Exception e) {
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            UpstreamUnavailableException unavailable = UpstreamUnavailableException.find(e);
+            try {
+                if (unavailable != null) {
+                    emailOutboxService.defer(nodeId, email, unavailable.getRetryAt(), error);
+                } else {
+                    emailOutboxService.markFailed(nodeId, email, error, isPermanent(e));
+                }
+            } catch (Exception recordError) {
+                log.error("Failed to record outcome of outbox message {}: {}", email.id(), recordError.getMessage());
+            }
+        } finally {
+            sending.remove(email.id());
+        }
+    }
+
+    // Gmail rejected the message itself (bad recipient, too large); resending cannot help.
+    // Rate limits, auth and server errors are retried.
+    private static boolean isPermanent(Exception e) {
+        if (e instanceof GoogleJsonResponseException response) {
+            int status = response.getStatusCode();
+            return status == 400 || status == 413;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,262 @@
+package com.automation.taskplatform.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+// A compiled mustache-style template. Supported tags:
+//   {{name}}                 value, HTML-escaped
+//   {{{name}}}               value, written as is
+//   {{#name}}...{{/name}}    repeated for each item of a list, or rendered once if the value is set
+//   {{^name}}...{{/name}}    rendered only if the value is missing, false or empty
+// Names resolve against the innermost list item first, then outwards to the root context.
+// Static text is UTF-8 encoded once at compile time, so rendering only copies byte arrays and
+// streams the placeholder values through the escaper and encoder, without building strings.
+public final class EmailTemplate {
+
+    private final List<Node> nodes;
+
+    private EmailTemplate(List<Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    // Parses the source once; throws IllegalArgumentException if tags are malformed or unbalanced
+    public static EmailTemplate compile(String source) {
+        Deque<Section> open = new ArrayDeque<>();
+        Deque<List<Node>> enclosing = new ArrayDeque<>();
+        List<Node> root = new ArrayList<>();
+        List<Node> current = root;
+        int position = 0;
+
+        while (position < source.length()) {
+            int tagStart = source.indexOf("{{", position);
+            if (tagStart < 0) {
+                addStatic(current, source.substring(position));
+                break;
+            }
+            addStatic(current, source.substring(position, tagStart));
+
+            boolean raw = source.startsWith("{{{", tagStart);
+            String close = raw ? "}}}" : "}}";
+            int tagEnd = source.indexOf(close, tagStart);
+            if (tagEnd < 0) {
+                throw new IllegalArgumentException("Unclosed tag at position " + tagStart);
+            }
+            String tag = source.substring(tagStart + (raw ? 3 : 2), tagEnd).trim();
+            position = tagEnd + close.length();
+
+            if (tag.isEmpty()) {
+                throw new IllegalArgumentException("Empty tag at position " + tagStart);
+            }
+            char kind = tag.charAt(0);
+            if (!raw && (kind == '#' || kind == '^')) {
+                Section section = new Section(name(tag), kind == '^', new ArrayList<>());
+                current.add(section);
+                open.push(section);
+                enclosing.push(current);
+                current = section.children;
+            } else if (!raw && kind == '/') {
+                if (open.isEmpty() || !open.peek().name.equals(name(tag))) {
+                    throw new IllegalArgumentException("Unexpected closing tag {{" + tag + "}}");
+                }
+                open.pop();
+                current = enclosing.pop();
+            } else if (!raw && kind == '!') {
+                // comment
+            } else {
+                current.add(new Variable(tag, !raw));
+            }
+        }
+
+        if (!open.isEmpty()) {
+            throw new IllegalArgumentException("Section {{#" + open.peek().name + "}} is never closed");
+        }
+        return new EmailTemplate(List.copyOf(root));
+    }
+
+    public void render(OutputStream out, Map<String, ?> context) throws IOException {
+        Deque<Object> scopes = new ArrayDeque<>();
+        scopes.push(context);
+        Utf8Writer writer = new Utf8Writer(out);
+        render(writer, nodes, scopes);
+        writer.flush();
+    }
+
+    private static void render(Utf8Writer out, List<Node> nodes, Deque<Object> scopes) throws IOException {
+        for (Node node : nodes) {
+            if (node instanceof Static fragment) {
+                out.writeBytes(fragment.bytes);
+            } else if (node instanceof Variable variable) {
+                Object value = lookup(scopes, variable.name);
+                if (value != null) {
+                    String text = value.toString();
+                    if (variable.escaped) {
+                        HtmlEscaper.escape(out, text);
+                    } else {
+                        out.write(text);
+                    }
+                }
+            } else if (node instanceof Section section) {
+                Object value = lookup(scopes, section.name);
+                if (section.inverted) {
+                    if (!isSet(value)) {
+                        render(out, section.children, scopes);
+                    }
+                } else if (value instanceof Collection<?> items) {
+                    for (Object item : items) {
+                        scopes.push(item != null ? item : Map.of());
+                        render(out, section.children, scopes);
+                        scopes.pop();
+                    }
+                } else if (isSet(value)) {
+                    render(out, section.children, scopes);
+                }
+            }
+        }
+    }
+
+    private static Object lookup(Deque<Object> scopes, String name) {
+        for (Object scope : scopes) {
+            if (scope instanceof Map<?, ?> map && map.containsKey(name)) {
+                return map.get(name);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSet(Object value) {
+        if (value == null || Boolean.FALSE.equals(value)) {
+            return false;
+        }
+        if (value instanceof Collection<?> items) {
+            return !items.isEmpty();
+        }
+        return !(value instanceof String text) || !text.isEmpty();
+    }
+
+    private static String name(String tag) {
+        return tag.substring(1).trim();
+    }
+
+    private static void addStatic(List<Node> nodes, String text) {
+        if (!text.isEmpty()) {
+            nodes.add(new Static(text.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    // Encodes characters as UTF-8 into a small reusable buffer in front of the render's stream,
+    // and lets the pre-encoded static fragments through in order
+    private static final class Utf8Writer extends Writer {
+
+        private final OutputStream out;
+        private final byte[] buffer = new byte[1024];
+        private int count;
+        private char highSurrogate;
+
+        Utf8Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        void writeBytes(byte[] bytes) throws IOException {
+            if (highSurrogate != 0) {
+                put('?');
+                highSurrogate = 0;
+            }
+            drain();
+            out.write(bytes);
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) {
+                encode(text.charAt(i));
+            }
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) {
+                encode(chars[i]);
+            }
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            encode((char) c);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (highSurrogate != 0) {
+                put('?');
+                highSurrogate = 0;
+            }
+            drain();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+        private void encode(char c) throws IOException {
+            if (count > buffer.length - 4) {
+                drain();
+            }
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    put(0xF0 | (codePoint >> 18));
+                    put(0x80 | ((codePoint >> 12) & 0x3F));
+                    put(0x80 | ((codePoint >> 6) & 0x3F));
+                    put(0x80 | (codePoint & 0x3F));
+                    return;
+                }
+                put('?'); // unpaired surrogate, as String.getBytes would encode it
+            }
+            if (c < 0x80) {
+                put(c);
+            } else if (c < 0x800) {
+                put(0xC0 | (c >> 6));
+                put(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                put('?');
+            } else {
+                put(0xE0 | (c >> 12));
+                put(0x80 | ((c >> 6) & 0x3F));
+                put(0x80 | (c & 0x3F));
+            }
+        }
+
+        private void put(int b) {
+            buffer[count++] = (byte) b;
+        }
+
+        private void drain() throws IOException {
+            if (count > 0) {
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+        }
+    }
+
+    private sealed interface Node permits Static, Variable, Section {}
+
+    private record Static(byte[] bytes) implements Node {}
+
+    private record Variable(String name, boolean escaped) implements Node {}
+
+    private record Section(String name, boolean inverted, List<Node> children) implements Node {}
+}
@@ -0,0 +1,116 @@
+package com.automation.taskplatform.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Email layouts for EMAIL_RECAP and SEND_EMAIL. Built-in layouts live in
+// resources/email-templates and are compiled once at startup. A workflow picks one with
+// "template" in its ActionConfig, or supplies its own source in "customTemplate"; custom
+// templates are compiled on first use and kept in an LRU keyed by their source.
+@Service
+public class EmailTemplateService {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailTemplateService.class);
+
+    public static final String DEFAULT_TEMPLATE = "default";
+    private static final int MAX_CUSTOM_TEMPLATE_LENGTH = 100_000;
+    private static final DateTimeFormatter RECAP_TIME = DateTimeFormatter.ofPattern("MMM d, yyyy h:mm a");
+
+    // Action type to the names of its built-in templates
+    private static final Map<String, List<String>> BUILT_IN = Map.of(
+        "EMAIL_RECAP", List.of("default", "compact"),
+        "SEND_EMAIL", List.of("default", "plain")
+    );
+
+    private final Map<String, EmailTemplate> builtIn = new HashMap<>();
+    private final LruCache<String, EmailTemplate> custom = new LruCache<>(256);
+
+    public EmailTemplateService() {
+        BUILT_IN.forEach((actionType, names) -> names.forEach(name ->
+            builtIn.put(key(actionType, name), EmailTemplate.compile(load(actionType, name)))));
+        log.info("Compiled {} built-in email templates", builtIn.size());
+    }
+
+    // The built-in template called name (the action's default when null), or customSource compiled
+    public EmailTemplate resolve(String actionType, String name, String customSource) {
+        if (customSource != null && !customSource.isBlank()) {
+            return compileCustom(customSource);
+        }
+
+        String templateName = name == null || name.isBlank() ? DEFAULT_TEMPLATE : name;
+        EmailTemplate template = builtIn.get(key(actionType, templateName));
+        if (template == null) {
+            throw new RuntimeException("Invalid email template: unknown template '" + templateName + "' for " + actionType);
+        }
+        return template;
+    }
+
+    // Placeholders: from, to, count and emails[] with sender, subject, date, snippet, aiSummary
+    public Map<String, Object> recapContext(List<GmailService.EmailSummary> emails, LocalDateTime from, LocalDateTime to) {
+        List<Map<String, Object>> items = emails.stream().map(email -> {
+            Map<String, Object> item = new HashMap<>();
+            item.put("sender", email.getFrom());
+            item.put("subject", email.getSubject());
+            item.put("date", email.getDate());
+            item.put("snippet", email.getSnippet());
+            item.put("aiSummary", email.getAiSummary());
+            return item;
+        }).toList();
+
+        Map<String, Object> context = new HashMap<>();
+        context.put("from", from.format(RECAP_TIME));
+        context.put("to", to.format(RECAP_TIME));
+        context.put("count", emails.size());
+        context.put("emails", items);
+        return context;
+    }
+
+    // Placeholders: subject, body
+    public Map<String, Object> reminderContext(String subject, String body) {
+        Map<String, Object> context = new HashMap<>();
+        context.put("subject", subject);
+        context.put("body", body);
+        return context;
+    }
+
+    private EmailTemplate compileCustom(String source) {
+        if (source.length() > MAX_CUSTOM_TEMPLATE_LENGTH) {
+            throw new RuntimeException("Invalid email template: longer than " + MAX_CUSTOM_TEMPLATE_LENGTH + " characters");
+        }
+        EmailTemplate template = custom.get(source);
+        if (template == null) {
+            try {
+                template = EmailTemplate.compile(source);
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Invalid email template: " + e.getMessage());
+            }
+            custom.put(source, template);
+        }
+        return template;
+    }
+
+    private static String key(String actionType, String name) {
+        return actionType + ":" + name;
+    }
+
+    private static String load(String actionType, String name) {
+        String file = ("EMAIL_RECAP".equals(actionType) ? "recap" : "reminder") + "-" + name + ".html";
+        try (InputStream in = new ClassPathResource("email-templates/" + file).getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Missing email template " + file, e);
+        }
+    }
+}
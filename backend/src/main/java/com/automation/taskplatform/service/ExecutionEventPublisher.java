@@ -0,0 +1,120 @@
+package com.automation.taskplatform.service;
+
+import com.automation.taskplatform.dto.ExecutionEvent;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+
+// Pushes execution events to the workflow owner's dashboards over STOMP. The in-memory broker
+// only reaches sockets connected to this node, while the job may run on any node, so events go
+// through Postgres NOTIFY and every node's listener forwards them to its own sockets.
+@Service
+public class ExecutionEventPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionEventPublisher.class);
+
+    public static final String DESTINATION = "/queue/executions";
+    private static final String CHANNEL = "execution_events";
+    private static final int POLL_TIMEOUT_MS = 5_000;
+    private static final long RECONNECT_DELAY_MS = 5_000;
+    // Error messages can be whole upstream response bodies; NOTIFY payloads must stay under 8000 bytes
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final JsonMapper jsonMapper;
+
+    private volatile boolean running = true;
+    private Thread listener;
+
+    public ExecutionEventPublisher(JdbcTemplate jdbcTemplate, DataSource dataSource,
+                                   SimpMessagingTemplate messagingTemplate, JsonMapper jsonMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.messagingTemplate = messagingTemplate;
+        this.jsonMapper = jsonMapper;
+    }
+
+    // Best effort: a lost event only delays the dashboard until its next list refresh, so a
+    // failure here never fails the execution
+    public void publish(String userEmail, ExecutionEvent event) {
+        String error = event.getErrorMessage();
+        if (error != null && error.length() > MAX_ERROR_LENGTH) {
+            event.setErrorMessage(error.substring(0, MAX_ERROR_LENGTH) + "…");
+        }
+        try {
+            String payload = jsonMapper.writeValueAsString(new Notification(userEmail, event));
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, CHANNEL, payload);
+        } catch (Exception e) {
+            log.warn("Could not publish {} event for workflow {}: {}", event.getStatus(), event.getWorkflowId(), e.getMessage());
+        }
+    }
+
+    // Holds one pooled connection for LISTEN and reconnects if it drops
+    @EventListener(ApplicationReadyEvent.class)
+    public void startListening() {
+        listener = new Thread(this::listen, "execution-events");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stopListening() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            forward(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Execution event listener lost its connection, reconnecting: {}", e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void forward(String payload) {
+        try {
+            Notification notification = jsonMapper.readValue(payload, Notification.class);
+            messagingTemplate.convertAndSendToUser(notification.user(), DESTINATION, notification.event());
+        } catch (Exception e) {
+            log.warn("Dropping execution event: {}", e.getMessage());
+        }
+    }
+
+    private record Notification(String user, ExecutionEvent event) {}
+}
@@ -0,0 +1,178 @@
+package com.automation.taskplatform.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+// execution_logs is range-partitioned by executed_at with one partition per day. Future
+// partitions are created ahead of time and old ones are dropped whole, so retention never
+// needs a DELETE and vacuum load stays flat as history grows.
+@Service
+@DependsOn({"entityManagerFactory", "schemaUpgrader"})
+public class ExecutionLogPartitionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionLogPartitionManager.class);
+
+    private static final String TABLE = "execution_logs";
+    private static final String PARTITION_PREFIX = "execution_logs_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final long MIGRATION_LOCK_ID = 7_301_001L;
+    // Matches the allocationSize of ExecutionLog's generator
+    static final int ID_BLOCK_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${execution-logs.retention-days:30}")
+    private int retentionDays;
+
+    @Value("${execution-logs.premake-days:7}")
+    private int premakeDays;
+
+    public ExecutionLogPartitionManager(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Hibernate creates execution_logs as a plain table; swap it for the partitioned layout
+    // before anything is written, then make sure today's partitions exist. Runs during context
+    // startup, after SchemaUpgrader and before the web server and @Scheduled jobs start.
+    @PostConstruct
+    public void initialize() {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Serializes nodes starting at the same time; released when the transaction ends
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + MIGRATION_LOCK_ID + ")");
+
+            String kind = tableKind();
+            if (!"p".equals(kind)) {
+                convertToPartitioned(kind != null);
+            }
+            usePooledIds();
+            maintainPartitions();
+        });
+    }
+
+    @Scheduled(cron = "0 15 0 * * *")
+    @Transactional
+    public void maintainPartitions() {
+        LocalDate today = LocalDate.now();
+
+        for (int i = 0; i <= premakeDays; i++) {
+            createPartition(today.plusDays(i));
+        }
+
+        LocalDate cutoff = today.minusDays(retentionDays);
+        for (String partition : listPartitions()) {
+            LocalDate day = LocalDate.parse(partition.substring(PARTITION_PREFIX.length()), SUFFIX);
+            if (day.isBefore(cutoff)) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+                log.info("Dropped execution log partition {} (older than {} days)", partition, retentionDays);
+            }
+        }
+    }
+
+    private void convertToPartitioned(boolean legacyExists) {
+        String legacyTable = TABLE + "_legacy";
+        if (legacyExists) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + legacyTable);
+        }
+
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS execution_log_ids INCREMENT BY " + ID_BLOCK_SIZE);
+        jdbcTemplate.execute("""
+            CREATE TABLE execution_logs (
+                id bigint NOT NULL DEFAULT nextval('execution_log_ids'),
+                workflow_id bigint NOT NULL,
+                status varchar(255) NOT NULL,
+                error_message text,
+                executed_at timestamp(6) NOT NULL,
+                execution_time_ms integer,
+                stage_timings text,
+                CONSTRAINT pk_execution_logs_partitioned PRIMARY KEY (id, executed_at),
+                CONSTRAINT fk_execution_logs_workflow FOREIGN KEY (workflow_id) REFERENCES workflows (id) ON DELETE CASCADE
+            ) PARTITION BY RANGE (executed_at)
+            """);
+        // Serves findTop10ByWorkflowOrderByExecutedAtDesc with a merge across partitions
+        jdbcTemplate.execute("CREATE INDEX idx_execution_logs_workflow_executed ON execution_logs (workflow_id, executed_at DESC)");
+
+        if (!legacyExists) {
+            log.info("Created partitioned {} table", TABLE);
+            return;
+        }
+
+        // Carry over the history that is still inside the retention window
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        LocalDate oldest = jdbcTemplate.queryForObject(
+            "SELECT CAST(min(executed_at) AS date) FROM " + legacyTable, LocalDate.class);
+        if (oldest != null) {
+            for (LocalDate day = oldest.isBefore(cutoff) ? cutoff : oldest; !day.isAfter(LocalDate.now()); day = day.plusDays(1)) {
+                createPartition(day);
+            }
+        }
+
+        int copied = jdbcTemplate.update("""
+            INSERT INTO execution_logs (id, workflow_id, status, error_message, executed_at, execution_time_ms, stage_timings)
+            SELECT id, workflow_id, status, error_message, executed_at, execution_time_ms, stage_timings
+            FROM execution_logs_legacy
+            WHERE executed_at >= ? AND executed_at < ?
+            """, cutoff, LocalDate.now().plusDays(1));
+        // nextval returns the top of a block, so the first block after the copied rows ends here
+        jdbcTemplate.execute("SELECT setval('execution_log_ids', (SELECT COALESCE(max(id), 0) + " + ID_BLOCK_SIZE
+                + " FROM execution_logs_legacy), false)");
+        jdbcTemplate.execute("DROP TABLE " + legacyTable);
+
+        log.info("Converted {} to a partitioned table, kept {} rows from the last {} days", TABLE, copied, retentionDays);
+    }
+
+    // execution_log_ids used to hand out one ID per nextval. Marking the current value as used
+    // before widening the increment makes the first pooled block start above every issued ID.
+    private void usePooledIds() {
+        Long increment = jdbcTemplate.queryForObject(
+            "SELECT seqincrement FROM pg_sequence WHERE seqrelid = 'execution_log_ids'::regclass", Long.class);
+        if (increment != null && increment == ID_BLOCK_SIZE) {
+            return;
+        }
+        jdbcTemplate.execute("SELECT setval('execution_log_ids', (SELECT last_value FROM execution_log_ids), true)");
+        jdbcTemplate.execute("ALTER SEQUENCE execution_log_ids INCREMENT BY " + ID_BLOCK_SIZE);
+        log.info("Switched execution_log_ids to pooled blocks of {}", ID_BLOCK_SIZE);
+    }
+
+    private void createPartition(LocalDate day) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + PARTITION_PREFIX + day.format(SUFFIX)
+                + " PARTITION OF " + TABLE
+                + " FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')");
+    }
+
+    // relkind 'p' = partitioned, 'r' = plain table, null = missing
+    private String tableKind() {
+        List<String> kinds = jdbcTemplate.queryForList("""
+            SELECT c.relkind::text FROM pg_class c
+            JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE c.relname = ? AND n.nspname = current_schema()
+            """, String.class, TABLE);
+        return kinds.isEmpty() ? null : kinds.get(0);
+    }
+
+    private List<String> listPartitions() {
+        return jdbcTemplate.queryForList("""
+            SELECT child.relname FROM pg_inherits i
+            JOIN pg_class parent ON parent.oid = i.inhparent
+            JOIN pg_class child ON child.oid = i.inhrelid
+            JOIN pg_namespace n ON n.oid = parent.relnamespace
+            WHERE parent.relname = ? AND n.nspname = current_schema()
+            """, String.class, TABLE).stream()
+            .filter(name -> name.startsWith(PARTITION_PREFIX))
+            .toList();
+    }
+}
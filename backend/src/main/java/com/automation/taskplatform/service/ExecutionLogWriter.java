@@ -0,0 +1,125 @@
+package com.automation.taskplatform.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Buffers execution log rows in memory and writes them as JDBC batch inserts, so recording an
+// execution never adds a database round trip to the execution itself. Row IDs come from blocks
+// reserved with one nextval each, so a batch carries its IDs instead of calling nextval per row.
+@Service
+public class ExecutionLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionLogWriter.class);
+
+    private static final String INSERT_SQL = """
+        INSERT INTO execution_logs (id, workflow_id, status, error_message, executed_at, execution_time_ms, stage_timings)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BlockingQueue<Entry> queue;
+
+    // Unused part of the current ID block: nextId up to and including lastId
+    private long nextId = 1;
+    private long lastId = 0;
+
+    @Value("${execution-logs.batch-size:500}")
+    private int batchSize;
+
+    public ExecutionLogWriter(JdbcTemplate jdbcTemplate, @Value("${execution-logs.queue-capacity:10000}") int queueCapacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public void record(Long workflowId, LocalDateTime executedAt, String errorMessage, ExecutionTimer timer) {
+        String stageTimings;
+        try {
+            stageTimings = objectMapper.writeValueAsString(timer.stageMillis());
+        } catch (Exception e) {
+            stageTimings = null;
+        }
+
+        Entry entry = new Entry(workflowId, errorMessage == null ? "SUCCESS" : "FAILURE", errorMessage,
+                executedAt, timer.elapsedMillis(), stageTimings);
+        if (!queue.offer(entry)) {
+            log.warn("Execution log queue is full, dropping log for workflow {}", workflowId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${execution-logs.flush-interval-ms:1000}")
+    public void flush() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void write(List<Entry> batch) {
+        long[] ids = new long[batch.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = nextId();
+        }
+        int[] index = {0};
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, entry) -> {
+                ps.setLong(1, ids[index[0]++]);
+                ps.setLong(2, entry.workflowId());
+                ps.setString(3, entry.status());
+                ps.setString(4, entry.errorMessage());
+                ps.setTimestamp(5, Timestamp.valueOf(entry.executedAt()));
+                ps.setInt(6, entry.executionTimeMs());
+                ps.setObject(7, entry.stageTimings(), Types.VARCHAR);
+            });
+        } catch (Exception e) {
+            // Usually a workflow deleted while its log was queued; keep the rest of the batch
+            log.warn("Batch insert of {} execution logs failed, retrying individually: {}", batch.size(), e.getMessage());
+            for (int i = 0; i < batch.size(); i++) {
+                Entry entry = batch.get(i);
+                try {
+                    jdbcTemplate.update(INSERT_SQL, ids[i], entry.workflowId(), entry.status(), entry.errorMessage(),
+                            Timestamp.valueOf(entry.executedAt()), entry.executionTimeMs(), entry.stageTimings());
+                } catch (Exception single) {
+                    log.warn("Dropping execution log for workflow {}: {}", entry.workflowId(), single.getMessage());
+                }
+            }
+        }
+    }
+
+    // nextval returns the top of a block of the sequence's increment; the block is every ID above
+    // the previous block's top. Reading the increment with it keeps this right while the sequence
+    // is being switched from single IDs to blocks.
+    private synchronized long nextId() {
+        if (nextId > lastId) {
+            long[] block = jdbcTemplate.queryForObject(
+                "SELECT nextval('execution_log_ids'), seqincrement FROM pg_sequence WHERE seqrelid = 'execution_log_ids'::regclass",
+                (rs, rowNum) -> new long[] {rs.getLong(1), rs.getLong(2)});
+            lastId = block[0];
+            nextId = Math.max(1, block[0] - block[1] + 1);
+        }
+        return nextId++;
+    }
+
+    private record Entry(Long workflowId, String status, String errorMessage, LocalDateTime executedAt,
+                         int executionTimeMs, String stageTimings) {}
+}
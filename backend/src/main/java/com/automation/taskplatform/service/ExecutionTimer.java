@@ -0,0 +1,37 @@
+package com.automation.taskplatform.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Accumulates wall time per stage of one workflow execution. Safe to share between threads,
+// stages that run several times (e.g. one Gmail get per message) add up.
+public class ExecutionTimer {
+
+    public enum Stage { TOKEN_REFRESH, GMAIL_LIST, GMAIL_GET, AI_SUMMARIZE, RENDER, SEND }
+
+    private final long startedAt = System.nanoTime();
+    private final Map<Stage, LongAdder> stageNanos = new ConcurrentHashMap<>();
+
+    // Records the time since startNanos (a System.nanoTime() reading) against the stage
+    public void record(Stage stage, long startNanos) {
+        stageNanos.computeIfAbsent(stage, s -> new LongAdder()).add(System.nanoTime() - startNanos);
+    }
+
+    public int elapsedMillis() {
+        return (int) ((System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    // Stage name to milliseconds, in pipeline order
+    public Map<String, Long> stageMillis() {
+        Map<String, Long> millis = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            LongAdder nanos = stageNanos.get(stage);
+            if (nanos != null) {
+                millis.put(stage.name(), nanos.sum() / 1_000_000);
+            }
+        }
+        return millis;
+    }
+}
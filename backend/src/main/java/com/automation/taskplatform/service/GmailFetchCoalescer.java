@@ -0,0 +1,96 @@
+package com.automation.taskplatform.service;
+
+import com.automation.taskplatform.model.User;
+import com.automation.taskplatform.service.GmailService.EmailFetch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Single-flight Gmail fetches per user. When several recap workflows of one user run in the same
+// tick, the first one fetches and every later one whose window lies inside that fetch waits for
+// it (or reuses it for the rest of the tick) and takes its own slice by received time.
+@Component
+public class GmailFetchCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(GmailFetchCoalescer.class);
+
+    private final GmailService gmailService;
+    private final long shareSeconds;
+    private final Map<Long, Flight> flights = new ConcurrentHashMap<>();
+
+    public GmailFetchCoalescer(
+            GmailService gmailService,
+            @Value("${gmail.fetch-share-seconds:60}") long shareSeconds) {
+        this.gmailService = gmailService;
+        this.shareSeconds = shareSeconds;
+    }
+
+    public EmailFetch getNewEmails(User user, LocalDateTime since, BigInteger historyCursor, ExecutionTimer timer) throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        Flight created = new Flight(since, new CompletableFuture<>());
+        Flight flight = flights.compute(user.getId(),
+            (userId, existing) -> existing != null && existing.covers(since, now.minusSeconds(shareSeconds)) ? existing : created);
+
+        if (flight != created) {
+            log.debug("Reusing in-flight Gmail fetch for user {} (window from {})", user.getEmail(), flight.since());
+            return await(flight).since(since);
+        }
+
+        try {
+            EmailFetch fetch = gmailService.getNewEmails(user, since, historyCursor, timer);
+            flight.result().complete(fetch);
+            return fetch;
+        } catch (IOException | RuntimeException e) {
+            // Waiters see the same failure, later callers start a fresh fetch
+            flights.remove(user.getId(), flight);
+            flight.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // Forgets fetches that are too old to share so the map only holds the current tick
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(shareSeconds);
+        flights.values().removeIf(flight -> flight.isStale(cutoff));
+    }
+
+    private static EmailFetch await(Flight flight) throws IOException {
+        try {
+            return flight.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    private record Flight(LocalDateTime since, CompletableFuture<EmailFetch> result) {
+
+        // Shareable while running or recently finished, as long as it reaches back far enough
+        boolean covers(LocalDateTime windowStart, LocalDateTime staleBefore) {
+            return !since.isAfter(windowStart) && !isStale(staleBefore);
+        }
+
+        boolean isStale(LocalDateTime staleBefore) {
+            if (!result.isDone()) {
+                return false;
+            }
+            return result.isCompletedExceptionally() || result.join().fetchedAt().isBefore(staleBefore);
+        }
+    }
+}
@@ -1,82 +1,230 @@
 package com.automation.taskplatform.service;
 
 import com.automation.taskplatform.model.User;
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
 import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.gson.GsonFactory;
-import com.google.api.client.util.Base64;
 import com.google.api.services.gmail.Gmail;
+import com.google.api.services.gmail.model.History;
+import com.google.api.services.gmail.model.HistoryMessageAdded;
+import com.google.api.services.gmail.model.ListHistoryResponse;
 import com.google.api.services.gmail.model.ListMessagesResponse;
 import com.google.api.services.gmail.model.Message;
 import com.google.api.services.gmail.model.MessagePartHeader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.Session;
-import jakarta.mail.internet.InternetAddress;
-import jakarta.mail.internet.MimeMessage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.math.BigInteger;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Properties;
+import java.util.Set;
 
 @Service
 public class GmailService {
 
     private static final Logger log = LoggerFactory.getLogger(GmailService.class);
 
+    // A recap covers at most this many of the newest messages
+    private static final int MAX_MESSAGES = 50;
+
+    private static final Set<String> EXCLUDED_LABELS = Set.of("DRAFT", "SPAM", "TRASH");
+
+    // 403 reasons Gmail uses for quota errors, as opposed to permission errors
+    private static final Set<String> RATE_LIMIT_REASONS = Set.of("rateLimitExceeded", "userRateLimitExceeded");
+
+    // Gmail accepts up to 100 calls per batch but starts rate limiting well before that
+    private static final int MAX_BATCH_SIZE = 50;
+
+    // Gmail API quota units per call, as charged against the per-user and per-project limits
+    private static final double PROFILE_UNITS = 1;
+    private static final double HISTORY_UNITS = 2;
+    private static final double LIST_UNITS = 5;
+    private static final double GET_UNITS = 5;
+    private static final double SEND_UNITS = 100;
+
+    // Overridable so tests can point the client at a local Gmail stub
+    @Value("${gmail.root-url:" + Gmail.DEFAULT_ROOT_URL + "}")
+    private String rootUrl = Gmail.DEFAULT_ROOT_URL;
+
     private final GoogleOAuthService googleOAuthService;
     private final AiSummaryService aiSummaryService;
-
-    public GmailService(GoogleOAuthService googleOAuthService, AiSummaryService aiSummaryService) {
+    private final HttpTransport httpTransport;
+    private final UpstreamGuard gmailGuard;
+
+    // Gmail clients by user ID, rebuilt when the user's access token rotates
+    private final LruCache<Long, CachedClient> clients;
+
+    public GmailService(
+            GoogleOAuthService googleOAuthService,
+            AiSummaryService aiSummaryService,
+            HttpTransport httpTransport,
+            @Qualifier("gmailGuard") UpstreamGuard gmailGuard,
+            @Value("${gmail.client-cache-size:1000}") int clientCacheSize) {
         this.googleOAuthService = googleOAuthService;
         this.aiSummaryService = aiSummaryService;
+        this.httpTransport = httpTransport;
+        this.gmailGuard = gmailGuard;
+        this.clients = new LruCache<>(clientCacheSize);
     }
 
     private Gmail getGmailService(User user) throws IOException {
         String accessToken = googleOAuthService.getAccessToken(user);
 
+        CachedClient cached = clients.get(user.getId());
+        if (cached != null && cached.accessToken().equals(accessToken)) {
+            return cached.gmail();
+        }
+
         GoogleCredential credential = new GoogleCredential().setAccessToken(accessToken);
 
-        return new Gmail.Builder(
-            new NetHttpTransport(),
+        Gmail gmail = new Gmail.Builder(
+            httpTransport,
             GsonFactory.getDefaultInstance(),
             credential
         )
         .setApplicationName("TaskFlow")
+        .setRootUrl(rootUrl)
         .build();
+
+        clients.put(user.getId(), new CachedClient(accessToken, gmail));
+        return gmail;
     }
 
-    public List<EmailSummary> getEmailsSince(User user, LocalDateTime since) throws IOException {
+    // Drops the cached client, e.g. when the user disconnects Gmail
+    public void evictClient(Long userId) {
+        clients.remove(userId);
+    }
+
+    // Emails received since the stored history cursor, so a recap only pays for mail it has not
+    // seen yet. Without a cursor, or once Gmail has expired it, falls back to the whole window
+    // starting at `since`. The returned cursor is where the next run should continue from.
+    public EmailFetch getNewEmails(User user, LocalDateTime since, BigInteger historyCursor, ExecutionTimer timer) throws IOException {
         Gmail gmail = getGmailService(user);
-        List<EmailSummary> summaries = new ArrayList<>();
+        LocalDateTime fetchedAt = LocalDateTime.now();
+
+        if (historyCursor != null) {
+            try {
+                return getEmailsFromHistory(user.getId(), gmail, historyCursor, since, fetchedAt, timer);
+            } catch (GoogleJsonResponseException e) {
+                if (e.getStatusCode() != 404) {
+                    throw e;
+                }
+                log.info("History cursor {} expired for user {}, falling back to a full window fetch",
+                        historyCursor, user.getEmail());
+            }
+        }
+
+        // Read the mailbox position before listing so mail arriving mid-fetch is picked up next run
+        long profileStart = System.nanoTime();
+        Gmail.Users.GetProfile getProfile = gmail.users().getProfile("me");
+        BigInteger historyId = gmailGuard.call(user.getId(), PROFILE_UNITS, getProfile::execute).getHistoryId();
+        timer.record(ExecutionTimer.Stage.GMAIL_LIST, profileStart);
+
+        return new EmailFetch(getEmailsSince(user.getId(), gmail, since, timer), historyId, fetchedAt);
+    }
+
+    public List<EmailSummary> getEmailsSince(User user, LocalDateTime since, ExecutionTimer timer) throws IOException {
+        return getEmailsSince(user.getId(), getGmailService(user), since, timer);
+    }
 
+    private List<EmailSummary> getEmailsSince(Long userId, Gmail gmail, LocalDateTime since, ExecutionTimer timer) throws IOException {
         // Convert LocalDateTime to epoch seconds for Gmail query
         long sinceEpoch = since.atZone(ZoneId.systemDefault()).toEpochSecond();
         String query = "after:" + sinceEpoch;
 
-        ListMessagesResponse response = gmail.users().messages()
+        long listStart = System.nanoTime();
+        Gmail.Users.Messages.List list = gmail.users().messages()
             .list("me")
             .setQ(query)
-            .setMaxResults(50L)
-            .execute();
+            .setMaxResults((long) MAX_MESSAGES);
+        ListMessagesResponse response = gmailGuard.call(userId, LIST_UNITS, list::execute);
+        timer.record(ExecutionTimer.Stage.GMAIL_LIST, listStart);
 
         if (response.getMessages() == null) {
-            return summaries;
+            return new ArrayList<>();
+        }
+
+        List<String> messageIds = response.getMessages().stream().map(Message::getId).toList();
+        return summarizeMessages(userId, gmail, messageIds, null, timer);
+    }
+
+    // Messages added to the mailbox since the cursor, newest first like messages.list
+    private EmailFetch getEmailsFromHistory(Long userId, Gmail gmail, BigInteger historyCursor, LocalDateTime since,
+                                            LocalDateTime fetchedAt, ExecutionTimer timer) throws IOException {
+        Set<String> messageIds = new LinkedHashSet<>();
+        BigInteger latestHistoryId = historyCursor;
+        String pageToken = null;
+
+        long listStart = System.nanoTime();
+        do {
+            Gmail.Users.History.List list = gmail.users().history()
+                .list("me")
+                .setStartHistoryId(historyCursor)
+                .setHistoryTypes(List.of("messageAdded"))
+                .setMaxResults(500L)
+                .setPageToken(pageToken);
+            ListHistoryResponse response = gmailGuard.call(userId, HISTORY_UNITS, list::execute);
+
+            if (response.getHistory() != null) {
+                for (History history : response.getHistory()) {
+                    if (history.getMessagesAdded() == null) {
+                        continue;
+                    }
+                    for (HistoryMessageAdded added : history.getMessagesAdded()) {
+                        Message message = added.getMessage();
+                        // messages.list leaves drafts, spam and trash out of the default search too
+                        if (message.getLabelIds() == null || message.getLabelIds().stream().noneMatch(EXCLUDED_LABELS::contains)) {
+                            messageIds.add(message.getId());
+                        }
+                    }
+                }
+            }
+            if (response.getHistoryId() != null) {
+                latestHistoryId = response.getHistoryId();
+            }
+            pageToken = response.getNextPageToken();
+        } while (pageToken != null);
+        timer.record(ExecutionTimer.Stage.GMAIL_LIST, listStart);
+
+        List<String> newestFirst = new ArrayList<>(messageIds);
+        Collections.reverse(newestFirst);
+        if (newestFirst.size() > MAX_MESSAGES) {
+            newestFirst = newestFirst.subList(0, MAX_MESSAGES);
         }
 
-        for (Message messageRef : response.getMessages()) {
-            Message message = gmail.users().messages()
-                .get("me", messageRef.getId())
-                .setFormat("metadata")
-                .setMetadataHeaders(List.of("From", "Subject", "Date"))
-                .execute();
+        // History can surface older mail (e.g. moved back to the inbox), keep to the recap window
+        long sinceMillis = since.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new EmailFetch(summarizeMessages(userId, gmail, newestFirst, sinceMillis, timer), latestHistoryId, fetchedAt);
+    }
+
+    // Skips messages received before notBeforeMillis when it is set
+    private List<EmailSummary> summarizeMessages(Long userId, Gmail gmail, List<String> messageIds, Long notBeforeMillis,
+                                                 ExecutionTimer timer) throws IOException {
+        List<EmailSummary> summaries = new ArrayList<>();
+
+        long getStart = System.nanoTime();
+        List<Message> messages = getMessageMetadata(userId, gmail, messageIds);
+        timer.record(ExecutionTimer.Stage.GMAIL_GET, getStart);
+
+        for (Message message : messages) {
+            if (notBeforeMillis != null && message.getInternalDate() != null && message.getInternalDate() < notBeforeMillis) {
+                continue;
+            }
 
             EmailSummary summary = new EmailSummary();
 
@@ -87,104 +235,151 @@ public class GmailService {
                     case "Date" -> summary.setDate(header.getValue());
                 }
             }
+            summary.setMessageId(message.getId());
+            summary.setInternalDate(message.getInternalDate());
             summary.setSnippet(message.getSnippet());
 
-            // Generate AI summary if enabled
-            if (aiSummaryService.isEnabled()) {
-                String aiSummary = aiSummaryService.summarizeEmail(
-                    summary.getFrom(),
-                    summary.getSubject(),
-                    summary.getSnippet()
-                );
-                summary.setAiSummary(aiSummary);
-            }
-
             summaries.add(summary);
         }
 
+        // Generate AI summaries if enabled, all emails at once on the bounded summary pool
+        if (aiSummaryService.isEnabled() && !summaries.isEmpty()) {
+            long summarizeStart = System.nanoTime();
+            List<String> aiSummaries = aiSummaryService.summarizeEmails(userId, summaries.stream()
+                .map(summary -> new AiSummaryService.EmailInfo(
+                    summary.getMessageId(), summary.getFrom(), summary.getSubject(), summary.getSnippet()))
+                .toList());
+            for (int i = 0; i < summaries.size(); i++) {
+                summaries.get(i).setAiSummary(aiSummaries.get(i));
+            }
+            timer.record(ExecutionTimer.Stage.AI_SUMMARIZE, summarizeStart);
+        }
+
         return summaries;
     }
 
-    public String generateRecapHtml(List<EmailSummary> emails, LocalDateTime from, LocalDateTime to) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM d, yyyy h:mm a");
-
-        StringBuilder html = new StringBuilder();
-        html.append("<html><body style='font-family: Arial, sans-serif; max-width: 600px; margin: 0 auto;'>");
-        html.append("<h1 style='color: #4F46E5;'>📧 Your Email Recap</h1>");
-        html.append("<p style='color: #666;'>From ").append(from.format(formatter))
-            .append(" to ").append(to.format(formatter)).append("</p>");
-        html.append("<p style='color: #333;'><strong>").append(emails.size())
-            .append(" emails</strong> received during this period.</p>");
-        html.append("<hr style='border: 1px solid #eee; margin: 20px 0;'>");
-
-        if (emails.isEmpty()) {
-            html.append("<p style='color: #666;'>No new emails during this period.</p>");
-        } else {
-            for (EmailSummary email : emails) {
-                html.append("<div style='background: #f9fafb; padding: 15px; border-radius: 8px; margin-bottom: 10px;'>");
-                html.append("<p style='margin: 0 0 5px 0;'><strong>From:</strong> ").append(escapeHtml(email.getFrom())).append("</p>");
-                html.append("<p style='margin: 0 0 5px 0;'><strong>Subject:</strong> ").append(escapeHtml(email.getSubject())).append("</p>");
-
-                // Show AI summary if available, otherwise show snippet
-                if (email.getAiSummary() != null && !email.getAiSummary().isEmpty()) {
-                    html.append("<p style='margin: 0; color: #4F46E5; font-size: 14px;'>")
-                        .append("💡 ").append(escapeHtml(email.getAiSummary())).append("</p>");
-                } else {
-                    html.append("<p style='margin: 0; color: #666; font-size: 14px;'>")
-                        .append(escapeHtml(email.getSnippet())).append("</p>");
-                }
-                html.append("</div>");
+    // Fetches From/Subject/Date metadata for all listed messages with Gmail batch requests, so
+    // 50 messages cost one HTTP round trip instead of 50. Results keep the listing order.
+    // Messages deleted since they were listed (404) are skipped. Any other failed part fails the
+    // fetch, before the history cursor moves past the message, and is raised inside the guarded
+    // call so a throttled part counts as overload like a throttled call would.
+    private List<Message> getMessageMetadata(Long userId, Gmail gmail, List<String> messageIds) throws IOException {
+        Message[] results = new Message[messageIds.size()];
+
+        for (int start = 0; start < messageIds.size(); start += MAX_BATCH_SIZE) {
+            BatchRequest batch = gmail.batch();
+            int end = Math.min(start + MAX_BATCH_SIZE, messageIds.size());
+            List<GoogleJsonResponseException> failures = new ArrayList<>();
+
+            for (int i = start; i < end; i++) {
+                int index = i;
+                String messageId = messageIds.get(i);
+                gmail.users().messages()
+                    .get("me", messageId)
+                    .setFormat("metadata")
+                    .setMetadataHeaders(List.of("From", "Subject", "Date"))
+                    .queue(batch, new JsonBatchCallback<Message>() {
+                        @Override
+                        public void onSuccess(Message message, HttpHeaders responseHeaders) {
+                            results[index] = message;
+                        }
+
+                        @Override
+                        public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+                            if (error.getCode() == 404) {
+                                log.debug("Message {} was deleted before it could be fetched", messageId);
+                                return;
+                            }
+                            failures.add(new GoogleJsonResponseException(
+                                new HttpResponseException.Builder(error.getCode(), error.getMessage(), responseHeaders)
+                                    .setMessage("Failed to fetch message " + messageId + ": " + error.getMessage()),
+                                error));
+                        }
+                    });
             }
+            gmailGuard.call(userId, GET_UNITS * (end - start), () -> {
+                batch.execute();
+                if (!failures.isEmpty()) {
+                    throw mostSevere(failures);
+                }
+                return null;
+            });
         }
 
-        html.append("<hr style='border: 1px solid #eee; margin: 20px 0;'>");
-        html.append("<p style='color: #999; font-size: 12px;'>Generated by TaskFlow</p>");
-        html.append("</body></html>");
-
-        return html.toString();
+        List<Message> messages = new ArrayList<>(results.length);
+        for (Message message : results) {
+            if (message != null) {
+                messages.add(message);
+            }
+        }
+        return messages;
     }
 
-    public void sendEmail(User user, String to, String subject, String htmlBody) throws IOException, MessagingException {
-        log.info("Preparing to send email from {} to {} with subject: {}", user.getEmail(), to, subject);
+    // Uploads a complete RFC 822 message as is, so it is never base64url-encoded into a JSON
+    // string. Returns the Gmail ID of the sent message.
+    public String sendRawMessage(User user, byte[] rawMessage) throws IOException {
+        log.info("Preparing to send email from {}", user.getEmail());
         Gmail gmail = getGmailService(user);
 
-        Properties props = new Properties();
-        Session session = Session.getDefaultInstance(props, null);
+        Gmail.Users.Messages.Send send = gmail.users().messages()
+            .send("me", null, new ByteArrayContent("message/rfc822", rawMessage));
+        send.getMediaHttpUploader().setDirectUploadEnabled(true);
 
-        MimeMessage email = new MimeMessage(session);
-        email.setFrom(new InternetAddress(user.getEmail()));
-        email.addRecipient(jakarta.mail.Message.RecipientType.TO, new InternetAddress(to));
-        email.setSubject(subject);
-        email.setContent(htmlBody, "text/html; charset=utf-8");
-
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        email.writeTo(buffer);
-        byte[] rawMessageBytes = buffer.toByteArray();
-        String encodedEmail = Base64.encodeBase64URLSafeString(rawMessageBytes);
+        Message sentMessage = gmailGuard.call(user.getId(), SEND_UNITS, send::execute);
+        log.info("Email sent successfully! Message ID: {}", sentMessage.getId());
+        return sentMessage.getId();
+    }
 
-        Message message = new Message();
-        message.setRaw(encodedEmail);
+    // Throttling first, so one 429 among other failed parts still slows the guard down
+    private static GoogleJsonResponseException mostSevere(List<GoogleJsonResponseException> failures) {
+        for (GoogleJsonResponseException failure : failures) {
+            if (failure.getStatusCode() == 429 || failure.getStatusCode() == 403 && isRateLimit(failure)) {
+                return failure;
+            }
+        }
+        for (GoogleJsonResponseException failure : failures) {
+            if (failure.getStatusCode() >= 500) {
+                return failure;
+            }
+        }
+        return failures.get(0);
+    }
 
-        Message sentMessage = gmail.users().messages().send("me", message).execute();
-        log.info("Email sent successfully! Message ID: {}", sentMessage.getId());
+    private static boolean isRateLimit(GoogleJsonResponseException failure) {
+        return failure.getDetails() != null && failure.getDetails().getErrors() != null
+            && failure.getDetails().getErrors().stream()
+                .anyMatch(error -> RATE_LIMIT_REASONS.contains(error.getReason()));
     }
 
-    private String escapeHtml(String text) {
-        if (text == null) return "";
-        return text.replace("&", "&amp;")
-                   .replace("<", "&lt;")
-                   .replace(">", "&gt;")
-                   .replace("\"", "&quot;");
+    private record CachedClient(String accessToken, Gmail gmail) {}
+
+    // Emails for a recap plus the history cursor the next run should start from. fetchedAt is
+    // when the mailbox was read; mail received after it belongs to the next recap.
+    public record EmailFetch(List<EmailSummary> emails, BigInteger historyId, LocalDateTime fetchedAt) {
+
+        // The part of this fetch received at or after since, e.g. for a workflow with a shorter window
+        public EmailFetch since(LocalDateTime since) {
+            long sinceMillis = since.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            return new EmailFetch(emails.stream()
+                .filter(email -> email.getInternalDate() == null || email.getInternalDate() >= sinceMillis)
+                .toList(), historyId, fetchedAt);
+        }
     }
 
     // Inner class for email summary
     public static class EmailSummary {
+        private String messageId;
+        private Long internalDate; // Epoch millis Gmail received the message
         private String from;
         private String subject;
         private String date;
         private String snippet;
         private String aiSummary;
 
+        public String getMessageId() { return messageId; }
+        public void setMessageId(String messageId) { this.messageId = messageId; }
+        public Long getInternalDate() { return internalDate; }
+        public void setInternalDate(Long internalDate) { this.internalDate = internalDate; }
         public String getFrom() { return from; }
         public void setFrom(String from) { this.from = from; }
         public String getSubject() { return subject; }
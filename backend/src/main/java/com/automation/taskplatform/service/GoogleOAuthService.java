@@ -6,23 +6,39 @@ import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
 import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeTokenRequest;
 import com.google.api.client.googleapis.auth.oauth2.GoogleRefreshTokenRequest;
 import com.google.api.client.googleapis.auth.oauth2.GoogleTokenResponse;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.gson.GsonFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
+// Google OAuth for Gmail access. Access tokens are kept in memory and renewed in the background
+// ahead of the user's next due workflow, so executions normally read a valid token from the
+// cache. Refreshes for one user are single-flight: concurrent callers share one token request.
 @Service
 public class GoogleOAuthService {
 
     private static final Logger log = LoggerFactory.getLogger(GoogleOAuthService.class);
 
+    // Tokens expiring within this window are refreshed
+    private static final long REFRESH_MARGIN_SECONDS = 300;
+    // A token this close to expiry is not handed out any more; callers wait for the refresh
+    private static final long MIN_VALIDITY_SECONDS = 30;
+
     @Value("${google.client.id}")
     private String clientId;
 
@@ -33,19 +49,39 @@ public class GoogleOAuthService {
     private String redirectUri;
 
     private final UserRepository userRepository;
+    private final UserService userService;
+    private final HttpTransport httpTransport;
+    private final Executor tokenRefreshExecutor;
+
+    // Access tokens by user ID
+    private final LruCache<Long, CachedToken> tokens;
+    private final Map<Long, CompletableFuture<CachedToken>> refreshes = new ConcurrentHashMap<>();
+
+    // Users with a workflow due within this window get their token renewed ahead of time
+    @Value("${google.token-refresh.lookahead-seconds:600}")
+    private long lookaheadSeconds = 600;
 
     private static final List<String> SCOPES = Arrays.asList(
         "https://www.googleapis.com/auth/gmail.readonly",
         "https://www.googleapis.com/auth/gmail.send"
     );
 
-    public GoogleOAuthService(UserRepository userRepository) {
+    public GoogleOAuthService(
+            UserRepository userRepository,
+            UserService userService,
+            HttpTransport httpTransport,
+            @Qualifier("tokenRefreshExecutor") Executor tokenRefreshExecutor,
+            @Value("${google.token-cache-size:10000}") int tokenCacheSize) {
         this.userRepository = userRepository;
+        this.userService = userService;
+        this.httpTransport = httpTransport;
+        this.tokenRefreshExecutor = tokenRefreshExecutor;
+        this.tokens = new LruCache<>(tokenCacheSize);
     }
 
     public String getAuthorizationUrl(String userEmail) {
         GoogleAuthorizationCodeFlow flow = new GoogleAuthorizationCodeFlow.Builder(
-            new NetHttpTransport(),
+            httpTransport,
             GsonFactory.getDefaultInstance(),
             clientId,
             clientSecret,
@@ -63,7 +99,7 @@ public class GoogleOAuthService {
 
     public void handleCallback(String code, String userEmail) throws IOException {
         GoogleTokenResponse tokenResponse = new GoogleAuthorizationCodeTokenRequest(
-            new NetHttpTransport(),
+            httpTransport,
             GsonFactory.getDefaultInstance(),
             "https://oauth2.googleapis.com/token",
             clientId,
@@ -80,42 +116,163 @@ public class GoogleOAuthService {
         user.setGoogleRefreshToken(tokenResponse.getRefreshToken());
         user.setGoogleTokenExpiry(LocalDateTime.now().plusSeconds(tokenResponse.getExpiresInSeconds()));
 
-        userRepository.save(user);
+        userService.save(user);
+        tokens.put(user.getId(), new CachedToken(user.getGoogleAccessToken(), user.getGoogleTokenExpiry()));
+    }
+
+    // Forgets the user's token, e.g. when they disconnect Gmail. A refresh still running for them
+    // no longer caches its result.
+    public void evictToken(Long userId) {
+        refreshes.remove(userId);
+        tokens.remove(userId);
     }
 
+    // A valid access token for the user. Tokens inside the refresh margin are still returned
+    // while a refresh runs in the background; only an (almost) expired token waits for one.
     public String getAccessToken(User user) throws IOException {
-        // Check if token is expired or about to expire (within 5 minutes)
-        if (user.getGoogleTokenExpiry() != null &&
-            user.getGoogleTokenExpiry().isBefore(LocalDateTime.now().plusMinutes(5))) {
-            log.info("Access token expired or expiring soon for user {}, refreshing...", user.getEmail());
-            refreshAccessToken(user);
+        CachedToken token = currentToken(user);
+        LocalDateTime now = LocalDateTime.now();
+        if (token.isValidAt(now.plusSeconds(REFRESH_MARGIN_SECONDS))) {
+            return token.accessToken();
+        }
+        if (token.isValidAt(now.plusSeconds(MIN_VALIDITY_SECONDS))) {
+            refresh(user);
+            return token.accessToken();
+        }
+
+        log.info("Access token expired for user {}, waiting for refresh", user.getEmail());
+        try {
+            return refresh(user).join().accessToken();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
         }
-        return user.getGoogleAccessToken();
     }
 
-    private void refreshAccessToken(User user) throws IOException {
-        if (user.getGoogleRefreshToken() == null) {
-            throw new IOException("No refresh token available for user " + user.getEmail());
+    // Renews the tokens of users who have a workflow due soon and whose token would have
+    // expired by then, so those executions find a fresh token in the cache
+    @Scheduled(fixedDelayString = "${google.token-refresh.interval-ms:60000}")
+    public void refreshDueTokens() {
+        LocalDateTime now = LocalDateTime.now();
+        List<User> users = userRepository.findUsersWithExpiringTokens(
+            now.plusSeconds(lookaheadSeconds), now.plusSeconds(lookaheadSeconds + REFRESH_MARGIN_SECONDS));
+        if (users.isEmpty()) {
+            return;
         }
 
-        log.info("Refreshing Google access token for user: {}", user.getEmail());
+        List<CompletableFuture<CachedToken>> pending = new ArrayList<>();
+        for (User user : users) {
+            if (!currentToken(user).isValidAt(now.plusSeconds(lookaheadSeconds + REFRESH_MARGIN_SECONDS))) {
+                pending.add(refresh(user));
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        int failed = 0;
+        for (CompletableFuture<CachedToken> refresh : pending) {
+            try {
+                refresh.join();
+            } catch (CompletionException e) {
+                failed++;
+            }
+        }
+        log.info("Refreshed {} Google access tokens ahead of due workflows ({} failed)", pending.size() - failed, failed);
+    }
+
+    // The newer of the cached token and the one loaded with the user, which may have been
+    // refreshed by another node
+    private CachedToken currentToken(User user) {
+        CachedToken stored = new CachedToken(user.getGoogleAccessToken(), user.getGoogleTokenExpiry());
+        CachedToken cached = tokens.get(user.getId());
+        if (cached != null && !cached.expiresBefore(stored)) {
+            return cached;
+        }
+        if (stored.accessToken() != null) {
+            tokens.put(user.getId(), stored);
+        }
+        return stored;
+    }
+
+    // Starts a refresh for the user unless one is already running, and returns the shared result
+    private CompletableFuture<CachedToken> refresh(User user) {
+        CompletableFuture<CachedToken> created = new CompletableFuture<>();
+        CompletableFuture<CachedToken> running = refreshes.putIfAbsent(user.getId(), created);
+        if (running != null) {
+            return running;
+        }
+
+        String email = user.getEmail();
+        String refreshToken = user.getGoogleRefreshToken();
+        tokenRefreshExecutor.execute(() -> {
+            try {
+                CachedToken token = requestAccessToken(user.getId(), email, refreshToken);
+                if (refreshes.get(user.getId()) == created) {
+                    tokens.put(user.getId(), token);
+                }
+                created.complete(token);
+            } catch (Exception e) {
+                log.error("Failed to refresh Google access token for user {}: {}", email, e.getMessage());
+                created.completeExceptionally(e);
+            } finally {
+                refreshes.remove(user.getId(), created);
+            }
+        });
+        return created;
+    }
+
+    private CachedToken requestAccessToken(Long userId, String email, String refreshToken) throws IOException {
+        if (refreshToken == null) {
+            throw new IOException("No refresh token available for user " + email);
+        }
+
+        log.info("Refreshing Google access token for user: {}", email);
 
         GoogleTokenResponse tokenResponse = new GoogleRefreshTokenRequest(
-            new NetHttpTransport(),
+            httpTransport,
             GsonFactory.getDefaultInstance(),
-            user.getGoogleRefreshToken(),
+            refreshToken,
             clientId,
             clientSecret
         ).execute();
 
-        user.setGoogleAccessToken(tokenResponse.getAccessToken());
-        user.setGoogleTokenExpiry(LocalDateTime.now().plusSeconds(tokenResponse.getExpiresInSeconds()));
-        userRepository.save(user);
+        LocalDateTime expiry = LocalDateTime.now().plusSeconds(tokenResponse.getExpiresInSeconds());
+        int updated = userRepository.updateGoogleAccessToken(userId, refreshToken, tokenResponse.getAccessToken(), expiry);
+        userService.evict(userId);
+        if (updated == 0) {
+            // Either the user disconnected (or reconnected) meanwhile, and this token is dropped,
+            // or another node stored a newer one from the same refresh token, which is used instead
+            User stored = userRepository.findById(userId).orElse(null);
+            if (stored == null || !refreshToken.equals(stored.getGoogleRefreshToken())) {
+                throw new IOException("Gmail was disconnected while refreshing the access token for user " + email);
+            }
+            log.info("Access token for user {} was already refreshed elsewhere", email);
+            return new CachedToken(stored.getGoogleAccessToken(), stored.getGoogleTokenExpiry());
+        }
 
-        log.info("Successfully refreshed access token for user: {}", user.getEmail());
+        log.info("Successfully refreshed access token for user: {}", email);
+        return new CachedToken(tokenResponse.getAccessToken(), expiry);
     }
 
     public boolean isConnected(User user) {
         return user.getGoogleRefreshToken() != null;
     }
+
+    // A null expiry means unknown and is treated as valid, as before the cache existed
+    private record CachedToken(String accessToken, LocalDateTime expiry) {
+
+        boolean isValidAt(LocalDateTime time) {
+            return accessToken != null && (expiry == null || expiry.isAfter(time));
+        }
+
+        boolean expiresBefore(CachedToken other) {
+            return expiry != null && other.expiry != null && expiry.isBefore(other.expiry);
+        }
+    }
 }
@@ -0,0 +1,47 @@
+package com.automation.taskplatform.service;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+// Escapes text for HTML element content and attribute values in a single pass, writing
+// unchanged runs straight through instead of building intermediate strings
+public final class HtmlEscaper {
+
+    private HtmlEscaper() {
+    }
+
+    public static String escape(String text) {
+        StringWriter out = new StringWriter(text.length() + 16);
+        try {
+            escape(out, text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    public static void escape(Writer out, String text) throws IOException {
+        if (text == null) {
+            return;
+        }
+        int runStart = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String entity = switch (text.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (entity != null) {
+                out.write(text, runStart, i - runStart);
+                out.write(entity);
+                runStart = i + 1;
+            }
+        }
+        out.write(text, runStart, text.length() - runStart);
+    }
+}
@@ -1,10 +1,20 @@
 package com.automation.taskplatform.service;                                                                                                          
                                                                                                                                                         
+  import java.nio.charset.StandardCharsets;
   import java.security.Key;
+  import java.security.MessageDigest;
+  import java.security.NoSuchAlgorithmException;
     import java.util.Date;
+  import java.util.HexFormat;
 
+  import org.springframework.beans.factory.annotation.Value;
   import org.springframework.stereotype.Service;
 
+import com.automation.taskplatform.model.AuthenticatedUser;
+import com.automation.taskplatform.model.User;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
   import io.jsonwebtoken.security.Keys;                                                                                                                                
@@ -14,31 +24,79 @@ import io.jsonwebtoken.SignatureAlgorithm;
                                                                                                                                                         
       private final Key secretKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);                                                                        
       private final long EXPIRATION_TIME = 86400000; // 24 hours in milliseconds                                                                        
+      private static final String USER_ID_CLAIM = "uid";
+
+      // Parsers are immutable and thread-safe, so one is built up front and shared
+      private final JwtParser parser = Jwts.parserBuilder().setSigningKey(secretKey).build();
+
+      // Verified tokens by SHA-256 of the token, so raw bearer tokens are never kept as keys
+      private final LruCache<String, VerifiedToken> verifiedTokens;
+
+      public JwtService(@Value("${jwt.verified-token-cache-size:10000}") int verifiedTokenCacheSize) {
+          this.verifiedTokens = new LruCache<>(verifiedTokenCacheSize);
+      }
                                                                                                                                                         
-      public String generateToken(String email) {                                                                                                       
+      public String generateToken(User user) {                                                                                                       
           // TODO: Use Jwts.builder() to create a token                                                                                                 
           // Set: subject(email), issuedAt(now), expiration(now + EXPIRATION_TIME), signWith(secretKey)                                                 
           // Then call .compact() to get the string     
           return Jwts.builder()                                                                                                                             
-          .setSubject(email)                                                                                                                            
+          .setSubject(user.getEmail())
+          .claim(USER_ID_CLAIM, user.getId())
           .setIssuedAt(new Date())                                                                                                                      
           .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))                                                                        
           .signWith(secretKey)                                                                                                                          
           .compact();                                                                                                               
       }                                                                                                                                                 
                                                                                                                                                         
-      public String getUsername(String token) {                                                                                                         
-          // TODO: Use Jwts.parserBuilder() to parse the token and extract the subject                                                                  
-          return Jwts.parserBuilder()                                                                                                                 
-          .setSigningKey(secretKey)
-          .build()
-          .parseClaimsJws(token) // parses the token
-          .getBody() // returns Claims object
-          .getSubject();    // subject is the email                                                                                                                           
-      }                                                                                                                                                 
-                                                                                                                                                        
+      // The user a valid token was issued to. Verified tokens are remembered by their SHA-256
+      // until they expire, so a client polling with the same token pays for one HMAC check and
+      // claims decode instead of one per request.
+      public AuthenticatedUser authenticate(String token) {
+          return verify(token).user();
+      }
+
+      // Same as authenticate, also telling when the token expires (for sessions that outlive a request)
+      public VerifiedToken verify(String token) {
+          String key = hash(token);
+          VerifiedToken verified = verifiedTokens.get(key);
+          if (verified != null) {
+              if (verified.expiresAtMillis() > System.currentTimeMillis()) {
+                  return verified;
+              }
+              verifiedTokens.remove(key);
+          }
+
+          Claims claims = parseClaims(token);
+          AuthenticatedUser user = new AuthenticatedUser(claims.get(USER_ID_CLAIM, Long.class), claims.getSubject());
+          long expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+          verified = new VerifiedToken(user, expiresAt);
+          verifiedTokens.put(key, verified);
+          return verified;
+      }
+
+      // Verifies signature and expiry; only reached on a cache miss
+      protected Claims parseClaims(String token) {
+          return parser.parseClaimsJws(token).getBody();
+      }
+
+      public String getUsername(String token) {
+          return authenticate(token).email();
+      }
+
       public boolean isTokenValid(String token, String email) {                                                                                         
           String tokenEmail = getUsername(token);                                                                                                       
           return tokenEmail.equals(email);                                                                                                              
       }                                                                                                                                                 
-  }   
\ No newline at end of file
+  
+      private static String hash(String token) {
+          try {
+              MessageDigest digest = MessageDigest.getInstance("SHA-256");
+              return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+          } catch (NoSuchAlgorithmException e) {
+              throw new IllegalStateException(e);
+          }
+      }
+
+      public record VerifiedToken(AuthenticatedUser user, long expiresAtMillis) {}
+  }
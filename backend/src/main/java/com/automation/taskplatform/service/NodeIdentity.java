@@ -0,0 +1,37 @@
+package com.automation.taskplatform.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.UUID;
+
+// Identifies this node in the leases it takes on workflow jobs and outbox messages
+@Component
+public class NodeIdentity {
+
+    private static final Logger log = LoggerFactory.getLogger(NodeIdentity.class);
+
+    private final String id;
+
+    public NodeIdentity(@Value("${workflow.jobs.node-id:}") String nodeId) {
+        this.id = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        log.info("Worker node ID: {}", this.id);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
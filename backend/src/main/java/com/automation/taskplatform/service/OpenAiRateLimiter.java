@@ -0,0 +1,59 @@
+package com.automation.taskplatform.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Keeps this node under the OpenAI requests-per-minute and tokens-per-minute limits. Callers
+// block until both budgets admit the request instead of getting a 429 back.
+@Component
+public class OpenAiRateLimiter {
+
+    private static final long MAX_WAIT_MILLIS = 1_000;
+
+    private final int requestsPerMinute;
+    private final int tokensPerMinute;
+    private final TokenBucket requests; // null means no limit
+    private final TokenBucket tokens;   // null means no limit
+
+    public OpenAiRateLimiter(
+            @Value("${openai.rate-limit.requests-per-minute:500}") int requestsPerMinute,
+            @Value("${openai.rate-limit.tokens-per-minute:200000}") int tokensPerMinute) {
+        this.requestsPerMinute = requestsPerMinute;
+        this.tokensPerMinute = tokensPerMinute;
+        this.requests = requestsPerMinute > 0 ? new TokenBucket(requestsPerMinute, requestsPerMinute / 60d) : null;
+        this.tokens = tokensPerMinute > 0 ? new TokenBucket(tokensPerMinute, tokensPerMinute / 60d) : null;
+    }
+
+    // Waits until one request costing estimatedTokens fits in both budgets
+    public void acquire(int estimatedTokens) throws InterruptedException {
+        double tokenCost = tokens == null ? 0 : Math.min(estimatedTokens, tokensPerMinute);
+        while (!tryAcquire(tokenCost)) {
+            Thread.sleep(waitMillis(tokenCost));
+        }
+    }
+
+    private synchronized boolean tryAcquire(double tokenCost) {
+        if (requests != null && !requests.tryAcquire(1)) {
+            return false;
+        }
+        if (tokens != null && !tokens.tryAcquire(tokenCost)) {
+            if (requests != null) {
+                requests.release(1);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    // Roughly how long until the scarcer budget has refilled enough, capped so waiters re-check often
+    private long waitMillis(double tokenCost) {
+        double wait = 0;
+        if (requests != null) {
+            wait = Math.max(wait, (1 - requests.available()) / (requestsPerMinute / 60_000d));
+        }
+        if (tokens != null) {
+            wait = Math.max(wait, (tokenCost - tokens.available()) / (tokensPerMinute / 60_000d));
+        }
+        return Math.max(10, Math.min(MAX_WAIT_MILLIS, (long) Math.ceil(wait)));
+    }
+}
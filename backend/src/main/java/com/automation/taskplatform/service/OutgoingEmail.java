@@ -0,0 +1,102 @@
+package com.automation.taskplatform.service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeUtility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.regex.Pattern;
+
+// An HTML email written straight into its raw RFC 822 form. The body stream takes UTF-8 bytes and
+// base64-encodes them on the fly into one pooled byte buffer, so a large recap is assembled
+// without intermediate strings and copied out once, into the outbox row.
+public class OutgoingEmail implements AutoCloseable {
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+    private static final BlockingQueue<MimeBuffer> POOL = new ArrayBlockingQueue<>(32);
+    private static final Pattern LINE_BREAKS = Pattern.compile("[\\r\\n]+");
+
+    private final MimeBuffer buffer;
+    private final OutputStream body;
+    private boolean finished;
+
+    public OutgoingEmail(String from, String to, String subject) throws IOException, MessagingException {
+        MimeBuffer pooled = POOL.poll();
+        this.buffer = pooled != null ? pooled : new MimeBuffer();
+
+        writeHeader("From", new InternetAddress(from).toString());
+        writeHeader("To", new InternetAddress(to).toString());
+        // Line breaks would start new headers (e.g. an injected Bcc), so they become spaces; folding
+        // keeps long subjects within the line length limit
+        writeHeader("Subject", MimeUtility.fold("Subject: ".length(),
+            MimeUtility.encodeText(LINE_BREAKS.matcher(subject).replaceAll(" "), "UTF-8", "B")));
+        writeHeader("MIME-Version", "1.0");
+        writeHeader("Content-Type", "text/html; charset=UTF-8");
+        writeHeader("Content-Transfer-Encoding", "base64");
+        buffer.writeText("\r\n");
+
+        this.body = Base64.getMimeEncoder().wrap(buffer);
+    }
+
+    // Where the UTF-8 encoded HTML body is written, e.g. by EmailTemplate.render
+    public OutputStream body() {
+        return body;
+    }
+
+    // Completes the message and returns a copy that outlives the pooled buffer
+    public byte[] toByteArray() throws IOException {
+        finish();
+        return buffer.toByteArray();
+    }
+
+    @Override
+    public void close() {
+        if (buffer.capacity() <= MAX_POOLED_BUFFER_SIZE) {
+            buffer.reset();
+            POOL.offer(buffer);
+        }
+    }
+
+    private void finish() throws IOException {
+        if (!finished) {
+            body.close(); // writes the final base64 quantum and padding
+            buffer.writeText("\r\n");
+            finished = true;
+        }
+    }
+
+    private void writeHeader(String name, String value) {
+        buffer.writeText(name);
+        buffer.writeText(": ");
+        buffer.writeText(value);
+        buffer.writeText("\r\n");
+    }
+
+    // ByteArrayOutputStream whose buffer is reset and reused across messages
+    private static class MimeBuffer extends ByteArrayOutputStream {
+
+        MimeBuffer() {
+            super(INITIAL_BUFFER_SIZE);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+        void writeText(String text) {
+            writeBytes(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() {
+            // The base64 encoder closes its target when the body is finished; keep the buffer usable
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.automation.taskplatform.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Schema changes that ddl-auto=update cannot make on an existing database, such as changing a
+// column's type or its ID generation. Every step checks the catalog first, so it runs once and is a no-op afterwards.
+// Runs while the context starts, after Hibernate has updated the schema but before the web server
+// accepts requests and before @Scheduled jobs are registered (both happen once refresh completes).
+@Service
+@DependsOn("entityManagerFactory")
+public class SchemaUpgrader {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaUpgrader.class);
+    private static final long MIGRATION_LOCK_ID = 7_301_002L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public SchemaUpgrader(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Init callbacks are invoked on the bean itself, not through its @Transactional proxy
+    @PostConstruct
+    public void upgrade() {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Serializes nodes starting at the same time; released when the transaction ends
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + MIGRATION_LOCK_ID + ")");
+            convertActionConfigToJsonb();
+            createUserEmailIndex();
+            backfillWorkflowUpdatedAt();
+            moveWorkflowIdsToSequence();
+        });
+    }
+
+    // workflows.id used to be an identity column; Hibernate now takes pooled blocks of 50 from
+    // workflow_ids. nextval returns the top of a block, so setting the sequence to the highest
+    // existing ID makes the next block start right above it.
+    private void moveWorkflowIdsToSequence() {
+        jdbcTemplate.execute("ALTER TABLE workflows ALTER COLUMN id DROP IDENTITY IF EXISTS");
+        jdbcTemplate.queryForList("""
+            SELECT setval('workflow_ids', max_id) FROM (SELECT max(id) AS max_id FROM workflows) w
+            WHERE max_id >= (SELECT last_value FROM workflow_ids)
+            """);
+    }
+
+    // Rows created before updated_at existed count as last changed when they were created
+    private void backfillWorkflowUpdatedAt() {
+        jdbcTemplate.update("UPDATE workflows SET updated_at = created_at WHERE updated_at IS NULL");
+    }
+
+    // Serves the case-insensitive email lookups of login, signup and the OAuth callback; the
+    // unique constraint on email compares case-sensitively and cannot
+    private void createUserEmailIndex() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_users_email_lower ON users (lower(email))");
+    }
+
+    // workflows.action_config used to be TEXT. Values that are not valid JSON are kept as a JSON
+    // string, which fails validation, so the workflow is deactivated on its next run.
+    private void convertActionConfigToJsonb() {
+        if (!"text".equals(columnType("workflows", "action_config"))) {
+            return;
+        }
+        jdbcTemplate.execute("""
+            CREATE FUNCTION pg_temp.to_jsonb_lenient(value text) RETURNS jsonb AS $$
+            BEGIN
+                RETURN value::jsonb;
+            EXCEPTION WHEN others THEN
+                RETURN to_jsonb(value);
+            END
+            $$ LANGUAGE plpgsql
+            """);
+        jdbcTemplate.execute("""
+            ALTER TABLE workflows ALTER COLUMN action_config TYPE jsonb
+            USING CASE WHEN btrim(action_config) = '' THEN NULL ELSE pg_temp.to_jsonb_lenient(action_config) END
+            """);
+        log.info("Converted workflows.action_config to jsonb");
+    }
+
+    private String columnType(String table, String column) {
+        return jdbcTemplate.query(
+            "SELECT data_type FROM information_schema.columns WHERE table_schema = current_schema() AND table_name = ? AND column_name = ?",
+            rs -> rs.next() ? rs.getString(1) : null, table, column);
+    }
+}
@@ -0,0 +1,73 @@
+package com.automation.taskplatform.service;
+
+import java.util.function.LongSupplier;
+
+// Classic token bucket: holds up to capacity tokens and refills continuously at a fixed rate
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private final LongSupplier nanoClock;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double capacity, double refillPerSecond) {
+        this(capacity, refillPerSecond, System::nanoTime);
+    }
+
+    // nanoClock stands in for System.nanoTime(), e.g. a manual clock in tests
+    TokenBucket(double capacity, double refillPerSecond, LongSupplier nanoClock) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000d;
+        this.nanoClock = nanoClock;
+        this.tokens = capacity;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    public synchronized boolean tryAcquire(double amount) {
+        refill();
+        if (tokens < amount) {
+            return false;
+        }
+        tokens -= amount;
+        return true;
+    }
+
+    // Takes as many whole tokens as are available, up to max, and returns how many were taken
+    public synchronized int acquireUpTo(int max) {
+        refill();
+        int taken = (int) Math.min(max, Math.floor(tokens));
+        tokens -= taken;
+        return taken;
+    }
+
+    // Gives back tokens that were acquired but not used
+    public synchronized void release(double amount) {
+        refill();
+        tokens = Math.min(capacity, tokens + amount);
+    }
+
+    // Empties the bucket into debt so nothing can be taken for the given time, e.g. after the
+    // upstream said this caller's quota is exhausted
+    public synchronized void backOff(long millis) {
+        refill();
+        tokens = Math.min(tokens, -millis * 1_000_000 * refillPerNano);
+    }
+
+    // How long until amount tokens are available, 0 if they are now
+    public synchronized long millisUntilAvailable(double amount) {
+        refill();
+        return tokens >= amount ? 0 : (long) Math.ceil((amount - tokens) / refillPerNano / 1_000_000);
+    }
+
+    public synchronized double available() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,203 @@
+package com.automation.taskplatform.service;
+
+import com.automation.taskplatform.exception.UpstreamUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+// Every call to one upstream (Gmail, OpenAI) goes through its guard, which applies in order:
+//   1. a circuit breaker that fails fast while the upstream is down,
+//   2. a global and a per-user token bucket, in the upstream's quota units,
+//   3. an AIMD concurrency limit driven by overload responses.
+// Calls that cannot be admitted within maxWait throw UpstreamUnavailableException instead of
+// piling onto an upstream that is already pushing back.
+public class UpstreamGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamGuard.class);
+
+    // USER_OVERLOAD is one user's quota running out: it backs off that user only, while OVERLOAD
+    // (project quota, 5xx) slows and eventually opens the upstream for everyone
+    public enum Outcome { SUCCESS, OVERLOAD, USER_OVERLOAD, FAILURE, CLIENT_ERROR }
+
+    // Deferred work never comes back sooner than this, so it cannot spin through claim and defer
+    private static final long MIN_RETRY_MILLIS = 1_000;
+
+    public record Settings(
+        double globalUnitsPerSecond,  // 0 = no global rate limit
+        double userUnitsPerSecond,    // 0 = no per-user rate limit
+        int initialConcurrency,
+        int minConcurrency,
+        int maxConcurrency,
+        int failureThreshold,
+        long openMillis,
+        long maxWaitMillis
+    ) {}
+
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T execute() throws E;
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final Function<Exception, Outcome> classifier;
+    private final TokenBucket globalRate;
+    private final LruCache<Long, TokenBucket> userRates = new LruCache<>(10_000);
+    private final AimdLimiter concurrency;
+    private final CircuitBreaker breaker;
+
+    public UpstreamGuard(String name, Settings settings, Function<Exception, Outcome> classifier) {
+        this.name = name;
+        this.settings = settings;
+        this.classifier = classifier;
+        this.globalRate = settings.globalUnitsPerSecond() > 0
+            ? new TokenBucket(settings.globalUnitsPerSecond(), settings.globalUnitsPerSecond()) : null;
+        this.concurrency = new AimdLimiter(settings.initialConcurrency(), settings.minConcurrency(),
+            settings.maxConcurrency(), 0.5);
+        this.breaker = new CircuitBreaker(settings.failureThreshold(), settings.openMillis());
+    }
+
+    // A guard that only classifies outcomes, for tests and local tools
+    public static UpstreamGuard unlimited(String name) {
+        return new UpstreamGuard(name, new Settings(0, 0, Integer.MAX_VALUE, 1, Integer.MAX_VALUE,
+            Integer.MAX_VALUE, 0, 0), e -> Outcome.FAILURE);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    // Whether calls are currently being rejected; pollers use it to leave work queued
+    public boolean isOpen() {
+        return breaker.state() == CircuitBreaker.State.OPEN;
+    }
+
+    // While HALF_OPEN the trial call decides the state, and if it fails the circuit stays open
+    // for another full cool-down, so later callers wait that long rather than retrying at once
+    public LocalDateTime retryAt() {
+        long millis = breaker.state() == CircuitBreaker.State.HALF_OPEN ? settings.openMillis() : breaker.millisUntilRetry();
+        return LocalDateTime.now().plusNanos(Math.max(MIN_RETRY_MILLIS, millis) * 1_000_000);
+    }
+
+    // Runs the call for userId (null for calls not tied to a user), costing units of quota
+    public <T, E extends Exception> T call(Long userId, double units, Call<T, E> call) throws E {
+        if (!breaker.tryAcquire()) {
+            throw new UpstreamUnavailableException(name, "circuit open", retryAt());
+        }
+
+        long deadline = System.nanoTime() + settings.maxWaitMillis() * 1_000_000;
+        try {
+            acquireRate(userId, units, deadline);
+            if (!concurrency.acquire(deadline)) {
+                breaker.onIgnored();
+                throw new UpstreamUnavailableException(name, "concurrency limit reached", LocalDateTime.now().plusSeconds(1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            breaker.onIgnored();
+            throw new UpstreamUnavailableException(name, "interrupted", LocalDateTime.now().plusNanos(MIN_RETRY_MILLIS * 1_000_000));
+        }
+
+        boolean released = false;
+        try {
+            T result = call.execute();
+            released = true;
+            concurrency.onSuccess();
+            breaker.onSuccess();
+            return result;
+        } catch (Exception e) {
+            released = true;
+            record(userId, classifier.apply(e), e);
+            throw e;
+        } finally {
+            // An Error thrown by the call still frees its slot and the half-open trial
+            if (!released) {
+                concurrency.onIgnored();
+                breaker.onIgnored();
+            }
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("circuit", breaker.state().name());
+        snapshot.put("consecutiveFailures", breaker.consecutiveFailures());
+        snapshot.put("retryInMillis", breaker.millisUntilRetry());
+        snapshot.put("concurrencyLimit", concurrency.limit());
+        snapshot.put("inFlight", concurrency.inFlight());
+        snapshot.put("globalUnitsAvailable", globalRate != null ? Math.floor(globalRate.available()) : null);
+        snapshot.put("globalUnitsPerSecond", settings.globalUnitsPerSecond());
+        snapshot.put("userUnitsPerSecond", settings.userUnitsPerSecond());
+        snapshot.put("trackedUsers", userRates.size());
+        return snapshot;
+    }
+
+    private void record(Long userId, Outcome outcome, Exception e) {
+        switch (outcome) {
+            case OVERLOAD -> {
+                concurrency.onOverload();
+                breaker.onFailure();
+                log.warn("{} signalled overload, concurrency limit now {}: {}", name, concurrency.limit(), e.getMessage());
+            }
+            case USER_OVERLOAD -> {
+                concurrency.onIgnored();
+                breaker.onIgnored();
+                if (userId != null && settings.userUnitsPerSecond() > 0) {
+                    userRate(userId).backOff(settings.openMillis());
+                }
+                log.warn("{} rate limited user {}, backing off {} ms: {}", name, userId, settings.openMillis(), e.getMessage());
+            }
+            case FAILURE -> {
+                concurrency.onIgnored();
+                breaker.onFailure();
+            }
+            case CLIENT_ERROR, SUCCESS -> {
+                concurrency.onIgnored();
+                breaker.onIgnored();
+            }
+        }
+        if (breaker.state() == CircuitBreaker.State.OPEN) {
+            log.error("{} circuit open for {} ms after {} consecutive failures",
+                    name, breaker.millisUntilRetry(), breaker.consecutiveFailures());
+        }
+    }
+
+    // Takes units from the global and the user's bucket, waiting for refills until the deadline
+    private void acquireRate(Long userId, double units, long deadline) throws InterruptedException {
+        TokenBucket userRate = userId != null && settings.userUnitsPerSecond() > 0 ? userRate(userId) : null;
+        double globalCost = globalRate != null ? Math.min(units, settings.globalUnitsPerSecond()) : 0;
+        double userCost = userRate != null ? Math.min(units, settings.userUnitsPerSecond()) : 0;
+
+        while (true) {
+            boolean globalOk = globalRate == null || globalRate.tryAcquire(globalCost);
+            if (globalOk && (userRate == null || userRate.tryAcquire(userCost))) {
+                return;
+            }
+            if (globalOk && globalRate != null) {
+                globalRate.release(globalCost);
+            }
+            if (System.nanoTime() >= deadline) {
+                breaker.onIgnored();
+                long waitMillis = userRate != null ? userRate.millisUntilAvailable(userCost) : 0;
+                throw new UpstreamUnavailableException(name, "rate limit",
+                    LocalDateTime.now().plusNanos(Math.max(MIN_RETRY_MILLIS, waitMillis) * 1_000_000));
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private TokenBucket userRate(Long userId) {
+        synchronized (userRates) {
+            TokenBucket bucket = userRates.get(userId);
+            if (bucket == null) {
+                bucket = new TokenBucket(settings.userUnitsPerSecond(), settings.userUnitsPerSecond());
+                userRates.put(userId, bucket);
+            }
+            return bucket;
+        }
+    }
+}
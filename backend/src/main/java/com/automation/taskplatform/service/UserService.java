@@ -0,0 +1,82 @@
+package com.automation.taskplatform.service;
+
+import com.automation.taskplatform.model.AuthenticatedUser;
+import com.automation.taskplatform.model.User;
+import com.automation.taskplatform.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+// The signed-in user and a small cache of user rows by ID, so most requests never query the
+// users table. Cached users are detached snapshots: read them, but write through save() (or
+// call evict() after a targeted update) so other requests do not keep seeing the old row.
+// Evictions only reach this node, so entries also expire after a short TTL; another node's
+// token refresh or Gmail disconnect is seen here within that time.
+@Service
+public class UserService {
+
+    private final UserRepository userRepository;
+    private final LruCache<Long, CachedUser> users;
+    private final long ttlNanos;
+
+    public UserService(UserRepository userRepository,
+                       @Value("${users.cache-size:10000}") int cacheSize,
+                       @Value("${users.cache-ttl-seconds:30}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.users = new LruCache<>(cacheSize);
+        this.ttlNanos = ttlSeconds * 1_000_000_000;
+    }
+
+    // ID of the user making the current request, taken from the JWT without a query
+    public Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser principal
+                && principal.id() != null) {
+            return principal.id();
+        }
+        return currentUser().getId();
+    }
+
+    public User currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            throw new RuntimeException("User not found");
+        }
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal && principal.id() != null) {
+            return getUser(principal.id());
+        }
+
+        // Tokens without a user ID claim fall back to the indexed email lookup
+        User user = userRepository.findByEmailIgnoreCase(authentication.getName())
+            .orElseThrow(() -> new RuntimeException("User not found"));
+        cache(user);
+        return user;
+    }
+
+    public User getUser(Long id) {
+        CachedUser cached = users.get(id);
+        if (cached != null && System.nanoTime() - cached.loadedAt() < ttlNanos) {
+            return cached.user();
+        }
+        User user = userRepository.findById(id).orElseThrow(() -> new RuntimeException("User not found"));
+        cache(user);
+        return user;
+    }
+
+    public User save(User user) {
+        User saved = userRepository.save(user);
+        users.remove(saved.getId());
+        return saved;
+    }
+
+    public void evict(Long id) {
+        users.remove(id);
+    }
+
+    private void cache(User user) {
+        users.put(user.getId(), new CachedUser(user, System.nanoTime()));
+    }
+
+    private record CachedUser(User user, long loadedAt) {}
+}
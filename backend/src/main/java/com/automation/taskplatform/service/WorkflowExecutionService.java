@@ -1,19 +1,23 @@
 package com.automation.taskplatform.service;
 
+import com.automation.taskplatform.dto.ExecutionEvent;
+import com.automation.taskplatform.exception.UpstreamUnavailableException;
+import com.automation.taskplatform.model.ActionConfig;
 import com.automation.taskplatform.model.User;
 import com.automation.taskplatform.model.Workflow;
+import com.automation.taskplatform.model.WorkflowJob;
 import com.automation.taskplatform.repository.WorkflowRepository;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.scheduling.support.CronExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigInteger;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @Service
@@ -22,182 +26,201 @@ public class WorkflowExecutionService {
     private static final Logger log = LoggerFactory.getLogger(WorkflowExecutionService.class);
 
     private final WorkflowRepository workflowRepository;
-    private final GmailService gmailService;
     private final GoogleOAuthService googleOAuthService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final WorkflowJobService workflowJobService;
+    private final ExecutionLogWriter executionLogWriter;
+    private final GmailFetchCoalescer gmailFetchCoalescer;
+    private final EmailTemplateService emailTemplateService;
+    private final EmailOutboxService emailOutboxService;
+    private final ActionConfigService actionConfigService;
+    private final ExecutionEventPublisher executionEventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
     public WorkflowExecutionService(
             WorkflowRepository workflowRepository,
-            GmailService gmailService,
-            GoogleOAuthService googleOAuthService) {
+            GoogleOAuthService googleOAuthService,
+            WorkflowJobService workflowJobService,
+            ExecutionLogWriter executionLogWriter,
+            GmailFetchCoalescer gmailFetchCoalescer,
+            EmailTemplateService emailTemplateService,
+            EmailOutboxService emailOutboxService,
+            ActionConfigService actionConfigService,
+            ExecutionEventPublisher executionEventPublisher,
+            PlatformTransactionManager transactionManager) {
         this.workflowRepository = workflowRepository;
-        this.gmailService = gmailService;
         this.googleOAuthService = googleOAuthService;
+        this.workflowJobService = workflowJobService;
+        this.executionLogWriter = executionLogWriter;
+        this.gmailFetchCoalescer = gmailFetchCoalescer;
+        this.emailTemplateService = emailTemplateService;
+        this.emailOutboxService = emailOutboxService;
+        this.actionConfigService = actionConfigService;
+        this.executionEventPublisher = executionEventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    // Run every minute to check for scheduled workflows
-    @Scheduled(cron = "0 * * * * *")
+    // Workflows saved before nextRunAt existed have no fire time yet, compute it once on startup
+    @EventListener(ApplicationReadyEvent.class)
     @Transactional
-    public void runScheduledWorkflows() {
-        List<Workflow> workflows = workflowRepository.findByActiveTrueAndTriggerType("SCHEDULE");
-        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
-
-        log.info("Scheduler check at {} - Found {} scheduled workflows", now, workflows.size());
+    public void initializeNextRuns() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Workflow> workflows = workflowRepository.findByTriggerTypeAndActiveTrueAndNextRunAtIsNull("SCHEDULE");
 
         for (Workflow workflow : workflows) {
-            try {
-                boolean shouldRun = shouldRunNow(workflow, now);
-                log.debug("Workflow '{}' (cron: {}) - shouldRun: {}",
-                         workflow.getName(), workflow.getCronExpression(), shouldRun);
-
-                if (shouldRun) {
-                    log.info("Scheduled execution triggered for workflow '{}'", workflow.getName());
-                    executeWorkflow(workflow);
-                }
-            } catch (Exception e) {
-                log.error("Failed to execute scheduled workflow {}: {}", workflow.getId(), e.getMessage());
-            }
+            WorkflowSchedule.advance(workflow, now);
+            workflowRepository.save(workflow);
         }
-    }
 
-    private boolean shouldRunNow(Workflow workflow, LocalDateTime now) {
-        String cron = workflow.getCronExpression();
-        if (cron == null || cron.isBlank()) {
-            return false;
+        if (!workflows.isEmpty()) {
+            log.info("Initialized next run time for {} scheduled workflows", workflows.size());
         }
+    }
 
-        try {
-            // Convert 5-field cron to 6-field by prepending "0" for seconds
-            String normalizedCron = cron;
-            if (cron.split(" ").length == 5) {
-                normalizedCron = "0 " + cron;
-            }
-
-            CronExpression cronExpression = CronExpression.parse(normalizedCron);
-            // Check if current minute matches cron schedule
-            LocalDateTime lastMinute = now.minusMinutes(1);
-            LocalDateTime nextRun = cronExpression.next(lastMinute);
-
-            boolean shouldRun = nextRun != null && nextRun.equals(now);
-            log.info("Workflow '{}': cron='{}' normalized='{}' now={} nextRun={} shouldRun={}",
-                    workflow.getName(), cron, normalizedCron, now, nextRun, shouldRun);
-
-            return shouldRun;
-        } catch (Exception e) {
-            log.error("Invalid cron expression '{}' for workflow {}: {}", cron, workflow.getId(), e.getMessage());
-            return false;
-        }
+    // Runs outside a transaction so no DB connection is held during Gmail and OpenAI calls
+    public void executeById(Long workflowId, Long jobId) {
+        Workflow workflow = workflowRepository.findWithUserById(workflowId)
+            .orElseThrow(() -> new RuntimeException("Workflow not found"));
+        executeWorkflow(workflow, jobId);
     }
 
-    @Transactional
-    public void executeWorkflow(Workflow workflow) {
+    // Publishes STARTED, then SUCCEEDED, FAILED or DEFERRED, to the owner's dashboards
+    public void executeWorkflow(Workflow workflow, Long jobId) {
         User user = workflow.getUser();
         log.info("Executing workflow '{}' (ID: {}) for user: {}", workflow.getName(), workflow.getId(), user.getEmail());
 
-        if (!googleOAuthService.isConnected(user)) {
-            log.error("User {} has not connected Gmail", user.getEmail());
-            throw new RuntimeException("User has not connected their Gmail account");
-        }
-
+        LocalDateTime startedAt = LocalDateTime.now();
+        ExecutionTimer timer = new ExecutionTimer();
+        String error = null;
+        publishEvent(user, workflow, jobId, "STARTED", null, null);
         try {
-            switch (workflow.getActionType()) {
-                case "EMAIL_RECAP" -> executeEmailRecap(workflow, user);
-                case "SEND_EMAIL" -> executeSendEmail(workflow, user);
-                default -> throw new RuntimeException("Unknown action type: " + workflow.getActionType());
+            ActionConfigService.CompiledAction action = compileOrDeactivate(workflow);
+
+            if (!googleOAuthService.isConnected(user)) {
+                log.error("User {} has not connected Gmail", user.getEmail());
+                throw new RuntimeException("User has not connected their Gmail account");
             }
 
-            // Update last run time
-            workflow.setLastRunAt(LocalDateTime.now());
-            workflowRepository.save(workflow);
-            log.info("Workflow '{}' executed successfully", workflow.getName());
+            // Refresh the Google token up front so its cost shows up as its own stage
+            long tokenStart = System.nanoTime();
+            googleOAuthService.getAccessToken(user);
+            timer.record(ExecutionTimer.Stage.TOKEN_REFRESH, tokenStart);
+
+            if (action.config() instanceof ActionConfig.EmailRecap recap) {
+                executeEmailRecap(workflow, user, recap, action.template(), timer);
+            } else if (action.config() instanceof ActionConfig.SendEmail reminder) {
+                executeSendEmail(workflow, user, reminder, action.template(), timer);
+            }
+
+            // nextRunAt was already advanced past this fire time when the job was enqueued
+            LocalDateTime finishedAt = LocalDateTime.now();
+            workflow.setLastRunAt(finishedAt);
+            workflowRepository.markExecuted(workflow.getId(), finishedAt);
+            publishEvent(user, workflow, jobId, "SUCCEEDED", null, null);
+            log.info("Workflow '{}' executed successfully in {} ms {}", workflow.getName(), timer.elapsedMillis(), timer.stageMillis());
 
         } catch (Exception e) {
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
             log.error("Failed to execute workflow '{}': {}", workflow.getName(), e.getMessage(), e);
+            // The scheduler hands a deferred job back to the queue to run again at retryAt
+            UpstreamUnavailableException unavailable = UpstreamUnavailableException.find(e);
+            publishEvent(user, workflow, jobId, unavailable != null ? "DEFERRED" : "FAILED", error,
+                unavailable != null ? unavailable.getRetryAt() : null);
             throw new RuntimeException("Failed to execute workflow: " + e.getMessage(), e);
+        } finally {
+            executionLogWriter.record(workflow.getId(), startedAt, error, timer);
         }
     }
 
-    private void executeEmailRecap(Workflow workflow, User user) throws Exception {
-        // Parse config to get hoursBack (default: 18)
-        int hoursBack = 18;
+    private void publishEvent(User user, Workflow workflow, Long jobId, String status, String error, LocalDateTime retryAt) {
+        executionEventPublisher.publish(user.getEmail(), new ExecutionEvent(workflow.getId(), jobId, status, error,
+            workflow.getLastRunAt(), workflow.getNextRunAt(), retryAt, LocalDateTime.now()));
+    }
+
+    // Configs are validated on save, so one that fails here (e.g. saved before validation
+    // existed) would fail on every run; the workflow is deactivated instead of retried each tick
+    private ActionConfigService.CompiledAction compileOrDeactivate(Workflow workflow) {
         try {
-            if (workflow.getActionConfig() != null && !workflow.getActionConfig().isBlank()) {
-                JsonNode config = objectMapper.readTree(workflow.getActionConfig());
-                if (config.has("hoursBack")) {
-                    hoursBack = config.get("hoursBack").asInt(18);
-                }
-            }
-        } catch (Exception e) {
-            log.warn("Could not parse actionConfig, using default hoursBack: {}", e.getMessage());
+            return actionConfigService.compile(workflow);
+        } catch (RuntimeException e) {
+            workflowRepository.deactivate(workflow.getId(), LocalDateTime.now());
+            log.error("Deactivated workflow '{}' (ID: {}): {}", workflow.getName(), workflow.getId(), e.getMessage());
+            throw e;
         }
+    }
 
-        LocalDateTime from = LocalDateTime.now().minusHours(hoursBack);
+    private void executeEmailRecap(Workflow workflow, User user, ActionConfig.EmailRecap config, EmailTemplate template,
+                                   ExecutionTimer timer) throws Exception {
+        int hoursBack = config.hoursBack();
         LocalDateTime to = LocalDateTime.now();
+        LocalDateTime from = to.minusHours(hoursBack);
+        // Mail already covered by the previous recap is not repeated
+        if (workflow.getRecapCursorAt() != null && workflow.getRecapCursorAt().isAfter(from)) {
+            from = workflow.getRecapCursorAt();
+        }
 
         log.info("Fetching emails from {} to {} ({} hours back) for user {}", from, to, hoursBack, user.getEmail());
 
-        // Get emails
-        List<GmailService.EmailSummary> emails = gmailService.getEmailsSince(user, from);
+        // Get emails incrementally from the stored history cursor, shared with the user's other recaps this tick
+        BigInteger historyCursor = workflow.getGmailHistoryId() != null ? BigInteger.valueOf(workflow.getGmailHistoryId()) : null;
+        GmailService.EmailFetch fetch = gmailFetchCoalescer.getNewEmails(user, from, historyCursor, timer);
+        List<GmailService.EmailSummary> emails = fetch.emails();
         log.info("Found {} emails in the specified timeframe", emails.size());
 
-        // Generate recap HTML
-        String recapHtml = gmailService.generateRecapHtml(emails, from, to);
-
-        // Send recap email to user
+        // Render the recap straight into the outgoing MIME message
         String subject = "📧 Your Email Recap - " + to.toLocalDate().toString();
-        log.info("Sending recap email to: {}", user.getEmail());
-        gmailService.sendEmail(user, user.getEmail(), subject, recapHtml);
-        log.info("Recap email sent successfully to {}", user.getEmail());
-    }
-
-    private void executeSendEmail(Workflow workflow, User user) throws Exception {
-        // Parse actionConfig for email details
-        String to;
-        String subject;
-        String body;
-
-        try {
-            if (workflow.getActionConfig() == null || workflow.getActionConfig().isBlank()) {
-                throw new RuntimeException("Email configuration is missing");
-            }
-            JsonNode config = objectMapper.readTree(workflow.getActionConfig());
-            to = config.has("to") ? config.get("to").asText() : user.getEmail();
-            subject = config.has("subject") ? config.get("subject").asText() : "Reminder from TaskFlow";
-            body = config.has("body") ? config.get("body").asText() : "";
-        } catch (Exception e) {
-            throw new RuntimeException("Invalid email configuration: " + e.getMessage());
+        byte[] rawMessage;
+        try (OutgoingEmail recap = new OutgoingEmail(user.getEmail(), user.getEmail(), subject)) {
+            long renderStart = System.nanoTime();
+            template.render(recap.body(), emailTemplateService.recapContext(emails, from, to));
+            rawMessage = recap.toByteArray();
+            timer.record(ExecutionTimer.Stage.RENDER, renderStart);
         }
 
-        // Build HTML email body
-        String htmlBody = buildReminderEmailHtml(subject, body);
-
-        log.info("Sending reminder email to: {}", to);
-        gmailService.sendEmail(user, to, subject, htmlBody);
-        log.info("Reminder email sent successfully to {}", to);
+        // Queue the recap and move the cursor in one commit, so covered mail is either queued
+        // for sending or fetched again next run
+        Long historyId = fetch.historyId() != null ? fetch.historyId().longValue() : null;
+        long sendStart = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            emailOutboxService.enqueue(user.getId(), workflow.getId(), user.getEmail(), subject, rawMessage);
+            workflowRepository.updateRecapCursor(workflow.getId(), historyId, fetch.fetchedAt());
+        });
+        timer.record(ExecutionTimer.Stage.SEND, sendStart);
+        log.info("Recap email queued for {}", user.getEmail());
     }
 
-    private String buildReminderEmailHtml(String subject, String body) {
-        return """
-            <html>
-            <body style="font-family: Arial, sans-serif; max-width: 600px; margin: 0 auto; padding: 20px;">
-                <div style="background: linear-gradient(135deg, #6366f1 0%%, #8b5cf6 100%%); padding: 20px; border-radius: 10px 10px 0 0;">
-                    <h1 style="color: white; margin: 0;">⏰ Reminder</h1>
-                </div>
-                <div style="background: #f9fafb; padding: 20px; border-radius: 0 0 10px 10px; border: 1px solid #e5e7eb; border-top: none;">
-                    <p style="font-size: 16px; color: #374151; white-space: pre-wrap;">%s</p>
-                </div>
-                <p style="color: #9ca3af; font-size: 12px; margin-top: 20px;">Sent by TaskFlow</p>
-            </body>
-            </html>
-            """.formatted(body.replace("\n", "<br>"));
+    private void executeSendEmail(Workflow workflow, User user, ActionConfig.SendEmail config, EmailTemplate template,
+                                  ExecutionTimer timer) throws Exception {
+        String to = config.to() != null ? config.to() : user.getEmail();
+        String subject = config.subject();
+        String body = config.body();
+
+        // Render the reminder into the outgoing MIME message
+        byte[] rawMessage;
+        try (OutgoingEmail reminder = new OutgoingEmail(user.getEmail(), to, subject)) {
+            long renderStart = System.nanoTime();
+            template.render(reminder.body(), emailTemplateService.reminderContext(subject, body));
+            rawMessage = reminder.toByteArray();
+            timer.record(ExecutionTimer.Stage.RENDER, renderStart);
+        }
+
+        long sendStart = System.nanoTime();
+        emailOutboxService.enqueue(user.getId(), workflow.getId(), to, subject, rawMessage);
+        timer.record(ExecutionTimer.Stage.SEND, sendStart);
+        log.info("Reminder email queued for {}", to);
     }
 
-    // Manual execution endpoint
-    @Transactional
-    public void runNow(Long workflowId) {
+    // Manual execution endpoint: checks the workflow can run, then queues it for the worker pool
+    public WorkflowJob runNow(Long workflowId) {
         log.info("Manual run requested for workflow ID: {}", workflowId);
-        Workflow workflow = workflowRepository.findById(workflowId)
+        Workflow workflow = workflowRepository.findWithUserById(workflowId)
             .orElseThrow(() -> new RuntimeException("Workflow not found"));
-        executeWorkflow(workflow);
+
+        if (!googleOAuthService.isConnected(workflow.getUser())) {
+            throw new RuntimeException("User has not connected their Gmail account");
+        }
+
+        WorkflowJob job = workflowJobService.enqueueManualRun(workflow);
+        log.info("Queued manual run of workflow '{}' as job {}", workflow.getName(), job.getId());
+        return job;
     }
 }
@@ -0,0 +1,154 @@
+package com.automation.taskplatform.service;
+
+import com.automation.taskplatform.exception.NotFoundException;
+import com.automation.taskplatform.model.Workflow;
+import com.automation.taskplatform.model.WorkflowJob;
+import com.automation.taskplatform.repository.WorkflowJobRepository;
+import com.automation.taskplatform.repository.WorkflowRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Database side of the execution queue: the scheduler enqueues (workflow, fire time) rows and
+// workers on any node claim them under a lease that they keep alive with heartbeats
+@Service
+public class WorkflowJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkflowJobService.class);
+    private static final int ENQUEUE_BATCH_SIZE = 500;
+
+    private final WorkflowJobRepository workflowJobRepository;
+    private final WorkflowRepository workflowRepository;
+    private final DispatchSmoother dispatchSmoother;
+
+    @Value("${workflow.jobs.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${workflow.jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    public WorkflowJobService(
+            WorkflowJobRepository workflowJobRepository,
+            WorkflowRepository workflowRepository,
+            DispatchSmoother dispatchSmoother) {
+        this.workflowJobRepository = workflowJobRepository;
+        this.workflowRepository = workflowRepository;
+        this.dispatchSmoother = dispatchSmoother;
+    }
+
+    // Turns every due workflow into a pending job and advances its schedule in the same
+    // transaction, so a fire time is either fully enqueued or left for the next tick
+    @Transactional
+    public int enqueueDueWorkflows(LocalDateTime now) {
+        int enqueued = 0;
+        List<Workflow> workflows;
+        do {
+            workflows = workflowRepository.lockDueWorkflows(now, ENQUEUE_BATCH_SIZE);
+            for (Workflow workflow : workflows) {
+                LocalDateTime scheduledFor = workflow.getNextRunAt();
+                enqueued += workflowJobRepository.enqueue(workflow.getId(), scheduledFor,
+                        dispatchSmoother.runAt(workflow.getId(), scheduledFor), "SCHEDULE", now);
+                WorkflowSchedule.advance(workflow, now);
+            }
+            workflowRepository.saveAll(workflows);
+            workflowRepository.flush();
+        } while (workflows.size() == ENQUEUE_BATCH_SIZE);
+        return enqueued;
+    }
+
+    // Queues a manual run to start as soon as a worker has capacity, skipping the jitter window
+    @Transactional
+    public WorkflowJob enqueueManualRun(Workflow workflow) {
+        LocalDateTime now = LocalDateTime.now();
+
+        WorkflowJob job = new WorkflowJob();
+        job.setWorkflow(workflow);
+        job.setScheduledFor(now);
+        job.setRunAt(now);
+        job.setTriggerType("MANUAL");
+        job.setStatus("PENDING");
+        return workflowJobRepository.save(job);
+    }
+
+    // The workflow must come from the caller's owner-scoped lookup, see WorkflowService.getWorkflowById
+    public WorkflowJob getJob(Workflow workflow, Long jobId) {
+        return workflowJobRepository.findByIdAndWorkflowId(jobId, workflow.getId())
+            .orElseThrow(() -> new NotFoundException("Run not found"));
+    }
+
+    // Claims up to limit jobs for this node. Jobs whose lease expired too many times are
+    // treated as poison and failed instead of being handed out again.
+    @Transactional
+    public List<ClaimedJob> claim(String nodeId, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ClaimedJob> claimed = new ArrayList<>();
+
+        for (WorkflowJob job : workflowJobRepository.lockClaimable(now, limit)) {
+            if (job.getAttempts() >= maxAttempts) {
+                log.error("Job {} for workflow {} abandoned after {} attempts",
+                        job.getId(), job.getWorkflow().getId(), job.getAttempts());
+                job.setStatus("FAILED");
+                job.setErrorMessage("Lease expired after " + job.getAttempts() + " attempts");
+                job.setFinishedAt(now);
+                job.setLeaseExpiresAt(null);
+                continue;
+            }
+
+            if ("RUNNING".equals(job.getStatus())) {
+                log.warn("Reclaiming job {} from node {} (lease expired at {})",
+                        job.getId(), job.getLockedBy(), job.getLeaseExpiresAt());
+            }
+            job.setStatus("RUNNING");
+            job.setLockedBy(nodeId);
+            job.setAttempts(job.getAttempts() + 1);
+            job.setStartedAt(now);
+            job.setHeartbeatAt(now);
+            job.setLeaseExpiresAt(now.plusSeconds(leaseSeconds));
+            claimed.add(new ClaimedJob(job.getId(), job.getWorkflow().getId()));
+        }
+        return claimed;
+    }
+
+    @Transactional
+    public void heartbeat(String nodeId, Collection<Long> jobIds) {
+        if (jobIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int extended = workflowJobRepository.extendLeases(jobIds, nodeId, now, now.plusSeconds(leaseSeconds));
+        if (extended < jobIds.size()) {
+            log.warn("Node {} lost the lease on {} of {} running jobs", nodeId, jobIds.size() - extended, jobIds.size());
+        }
+    }
+
+    @Transactional
+    public void complete(String nodeId, Long jobId, String errorMessage) {
+        String status = errorMessage == null ? "SUCCEEDED" : "FAILED";
+        if (workflowJobRepository.complete(jobId, nodeId, status, errorMessage, LocalDateTime.now()) == 0) {
+            log.warn("Job {} was reclaimed by another node before it finished here", jobId);
+        }
+    }
+
+    // Requeues a job that could not run because an upstream was unavailable, without counting
+    // it as a failed attempt
+    @Transactional
+    public void defer(String nodeId, Long jobId, LocalDateTime runAt, String reason) {
+        if (workflowJobRepository.defer(jobId, nodeId, runAt, reason) == 0) {
+            log.warn("Job {} was reclaimed by another node before it was deferred here", jobId);
+        }
+    }
+
+    @Transactional
+    public int purgeFinishedBefore(LocalDateTime before) {
+        return workflowJobRepository.deleteFinishedBefore(before);
+    }
+
+    public record ClaimedJob(Long jobId, Long workflowId) {}
+}
@@ -0,0 +1,53 @@
+package com.automation.taskplatform.service;
+
+import com.automation.taskplatform.model.Workflow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.LocalDateTime;
+
+// Cron helpers shared by the scheduler and WorkflowService so nextRunAt is always computed the same way
+public final class WorkflowSchedule {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkflowSchedule.class);
+
+    private WorkflowSchedule() {
+    }
+
+    // Convert 5-field cron to 6-field by prepending "0" for seconds
+    public static CronExpression parse(String cron) {
+        String normalizedCron = cron.trim();
+        if (normalizedCron.split("\\s+").length == 5) {
+            normalizedCron = "0 " + normalizedCron;
+        }
+        return CronExpression.parse(normalizedCron);
+    }
+
+    public static boolean isScheduled(Workflow workflow) {
+        return workflow.isActive()
+            && "SCHEDULE".equals(workflow.getTriggerType())
+            && workflow.getCronExpression() != null
+            && !workflow.getCronExpression().isBlank();
+    }
+
+    // Next time the workflow is due strictly after the given time, or null if it never runs on a schedule
+    public static LocalDateTime nextRunAfter(Workflow workflow, LocalDateTime after) {
+        if (!isScheduled(workflow)) {
+            return null;
+        }
+        return parse(workflow.getCronExpression()).next(after);
+    }
+
+    // Sets nextRunAt after the given time. An unparseable cron leaves it empty so the workflow
+    // is never picked up as due.
+    public static void advance(Workflow workflow, LocalDateTime from) {
+        try {
+            workflow.setNextRunAt(nextRunAfter(workflow, from));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid cron expression '{}' for workflow {}: {}",
+                    workflow.getCronExpression(), workflow.getId(), e.getMessage());
+            workflow.setNextRunAt(null);
+        }
+    }
+}
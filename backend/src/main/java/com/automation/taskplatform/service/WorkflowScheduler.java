@@ -0,0 +1,141 @@
+package com.automation.taskplatform.service;
+
+import com.automation.taskplatform.exception.UpstreamUnavailableException;
+import com.automation.taskplatform.service.WorkflowJobService.ClaimedJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class WorkflowScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkflowScheduler.class);
+
+    private final WorkflowJobService workflowJobService;
+    private final WorkflowExecutionService workflowExecutionService;
+    private final DispatchSmoother dispatchSmoother;
+    private final Executor workflowExecutor;
+    private final UpstreamGuard gmailGuard;
+    private final int maxConcurrency;
+    private final String nodeId;
+
+    @Value("${workflow.jobs.retention-days:7}")
+    private int retentionDays;
+
+    // Jobs this node has claimed and not finished yet, kept alive by the heartbeat
+    private final Set<Long> runningJobs = ConcurrentHashMap.newKeySet();
+
+    public WorkflowScheduler(
+            WorkflowJobService workflowJobService,
+            WorkflowExecutionService workflowExecutionService,
+            DispatchSmoother dispatchSmoother,
+            @Qualifier("workflowExecutor") Executor workflowExecutor,
+            @Qualifier("gmailGuard") UpstreamGuard gmailGuard,
+            @Value("${workflow.execution.max-concurrency:32}") int maxConcurrency,
+            NodeIdentity nodeIdentity) {
+        this.workflowJobService = workflowJobService;
+        this.workflowExecutionService = workflowExecutionService;
+        this.dispatchSmoother = dispatchSmoother;
+        this.workflowExecutor = workflowExecutor;
+        this.gmailGuard = gmailGuard;
+        this.maxConcurrency = maxConcurrency;
+        this.nodeId = nodeIdentity.id();
+    }
+
+    // Run every minute to enqueue due workflows. Every node ticks, but each fire time is
+    // enqueued by only one of them.
+    @Scheduled(cron = "0 * * * * *")
+    public void runScheduledWorkflows() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        int enqueued = workflowJobService.enqueueDueWorkflows(now);
+        log.info("Scheduler check at {} - Enqueued {} due workflows", now, enqueued);
+    }
+
+    // Claim as many jobs as there is free execution capacity on this node, within the dispatch rate.
+    // Every workflow needs Gmail, so nothing is claimed while its circuit is open.
+    @Scheduled(fixedDelayString = "${workflow.jobs.poll-interval-ms:2000}")
+    public void pollJobs() {
+        int capacity = maxConcurrency - runningJobs.size();
+        if (capacity <= 0 || gmailGuard.isOpen()) {
+            return;
+        }
+
+        int permits = dispatchSmoother.acquireDispatchPermits(capacity);
+        if (permits == 0) {
+            return;
+        }
+
+        List<ClaimedJob> jobs = workflowJobService.claim(nodeId, permits);
+        dispatchSmoother.releaseDispatchPermits(permits - jobs.size());
+        if (jobs.isEmpty()) {
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        AtomicInteger failed = new AtomicInteger();
+        List<CompletableFuture<Void>> runs = new ArrayList<>();
+
+        for (ClaimedJob job : jobs) {
+            runningJobs.add(job.jobId());
+            runs.add(CompletableFuture.runAsync(() -> execute(job, failed), workflowExecutor));
+        }
+
+        // Completion barrier: report the batch once every claimed job has finished
+        int claimed = jobs.size();
+        CompletableFuture.allOf(runs.toArray(CompletableFuture[]::new))
+            .whenComplete((ignored, error) -> log.info(
+                "Job batch finished: {} claimed, {} succeeded, {} failed in {} ms",
+                claimed, claimed - failed.get(), failed.get(),
+                (System.nanoTime() - startedAt) / 1_000_000));
+    }
+
+    @Scheduled(fixedDelayString = "${workflow.jobs.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        workflowJobService.heartbeat(nodeId, List.copyOf(runningJobs));
+    }
+
+    @Scheduled(cron = "0 30 3 * * *")
+    public void purgeFinishedJobs() {
+        int deleted = workflowJobService.purgeFinishedBefore(LocalDateTime.now().minusDays(retentionDays));
+        log.info("Purged {} finished workflow jobs", deleted);
+    }
+
+    private void execute(ClaimedJob job, AtomicInteger failed) {
+        String error = null;
+        UpstreamUnavailableException unavailable = null;
+        try {
+            workflowExecutionService.executeById(job.workflowId(), job.jobId());
+        } catch (Exception e) {
+            unavailable = UpstreamUnavailableException.find(e);
+            failed.incrementAndGet();
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            log.error("Failed to execute workflow {} (job {}): {}", job.workflowId(), job.jobId(), error);
+        }
+
+        try {
+            if (unavailable != null) {
+                log.info("Deferring job {} until {}: {}", job.jobId(), unavailable.getRetryAt(), unavailable.getMessage());
+                workflowJobService.defer(nodeId, job.jobId(), unavailable.getRetryAt(), unavailable.getMessage());
+            } else {
+                workflowJobService.complete(nodeId, job.jobId(), error);
+            }
+        } catch (Exception e) {
+            log.error("Failed to record outcome of job {}: {}", job.jobId(), e.getMessage());
+        } finally {
+            runningJobs.remove(job.jobId());
+        }
+    }
+}
@@ -1,63 +1,191 @@
 package com.automation.taskplatform.service;
 import org.springframework.stereotype.Service;
 import com.automation.taskplatform.repository.WorkflowRepository;
+import com.automation.taskplatform.dto.WorkflowResponse;
+import com.automation.taskplatform.exception.NotFoundException;
 import com.automation.taskplatform.model.Workflow;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.annotation.Transactional;
 import com.automation.taskplatform.model.User;
-import org.springframework.security.core.context.SecurityContextHolder;
 import com.automation.taskplatform.repository.UserRepository;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class WorkflowService {
 
       private final WorkflowRepository workflowRepository;
       private final UserRepository userRepository;
+      private final UserService userService;
+      private final ActionConfigService actionConfigService;
 
-      public WorkflowService(WorkflowRepository workflowRepository, UserRepository userRepository) {
+      public static final int MAX_PAGE_SIZE = 500;
+      public static final int MAX_BULK_SIZE = 1000;
+
+      public WorkflowService(WorkflowRepository workflowRepository, UserRepository userRepository,
+                             UserService userService, ActionConfigService actionConfigService) {
           this.workflowRepository = workflowRepository;
           this.userRepository = userRepository;
+          this.userService = userService;
+          this.actionConfigService = actionConfigService;
       }
 
-      public Workflow createWorkflow(Workflow workflow) {                                                                                               
-          // Get current user's email from JWT token                                                                                                    
-          String email = SecurityContextHolder.getContext().getAuthentication().getName();                                                              
-                                                                                                                                                        
-          // Find user in database                                                                                                                      
-          User user = userRepository.findByEmailIgnoreCase(email)                                                                                                 
-              .orElseThrow(() -> new RuntimeException("User not found"));                                                                               
-                                                                                                                                                        
-          // Link workflow to user                                                                                                                      
-          workflow.setUser(user);                                                                                                                       
-                                                                                                                                                        
-          // Save and return                                                                                                                            
-          return workflowRepository.save(workflow);                                                                                                     
-      } 
-
-      public List<Workflow> getWorkflowsByUser() {                                                                                                          
-      String email = SecurityContextHolder.getContext().getAuthentication().getName();                                                                  
-      User user = userRepository.findByEmailIgnoreCase(email)                                                                                                     
-          .orElseThrow(() -> new RuntimeException("User not found"));                                                                                   
-      return workflowRepository.findByUser(user);                                                                                                       
-  }                                                                                                                                                     
-                                                                                                                                                        
-    public Workflow getWorkflowById(Long id) {                                                                                                            
-      return workflowRepository.findById(id)                                                                                                            
-          .orElseThrow(() -> new RuntimeException("Workflow not found"));                                                                               
+      public Workflow createWorkflow(Workflow workflow) {
+          // The user's ID comes from the JWT; a reference is enough to set the foreign key
+          Long userId = userService.currentUserId();
+
+          // Compute the first scheduled fire time
+          workflow.setNextRunAt(computeNextRun(workflow));
+          actionConfigService.validate(workflow.getActionType(), workflow.getActionConfig());
+
+          // Link workflow to user
+          workflow.setUser(userRepository.getReferenceById(userId));
+
+          // Save and return
+          return workflowRepository.save(workflow);
+      }
+
+      // One keyset page of the current user's workflows, in ID order after afterId
+      public List<WorkflowResponse> getWorkflowsByUser(long afterId, int limit) {
+      if (limit < 1 || limit > MAX_PAGE_SIZE) {
+          throw new RuntimeException("Invalid page size: limit must be between 1 and " + MAX_PAGE_SIZE);
+      }
+      return workflowRepository.findPageByUserId(userService.currentUserId(), afterId, Limit.of(limit));
+  }
+
+    // Opaque version of the current user's workflow list, used as its ETag. Any create, edit,
+    // run or delete changes the row count or the latest updatedAt.
+    public String getWorkflowListVersion() {
+      WorkflowRepository.ListVersion version = workflowRepository.findListVersion(userService.currentUserId());
+      long lastUpdated = version.getLastUpdatedAt() != null
+          ? version.getLastUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+      return "\"" + version.getCount() + "-" + lastUpdated + "\"";
+  }
+
+    // Only the caller's own workflows are found; anyone else's ID answers 404 like a missing one
+    public Workflow getWorkflowById(Long id) {
+      return workflowRepository.findByIdAndUserId(id, userService.currentUserId())
+          .orElseThrow(() -> new NotFoundException("Workflow not found"));
   }                                                                                                                                                     
                                                                                                                                                         
     public Workflow updateWorkflow(Long id, Workflow updated) {
       Workflow existing = getWorkflowById(id);
+      applyUpdate(existing, updated);
+      return workflowRepository.save(existing);
+  }
+
+    // Bulk calls run in one transaction against one user reference: IDs come from pooled
+    // sequence blocks and the inserts/updates are flushed as JDBC batches at commit, so a call
+    // costs a handful of round trips however many workflows it carries. Any invalid workflow
+    // rejects the whole call.
+    @Transactional
+    public List<Workflow> createWorkflows(List<Workflow> workflows) {
+      checkBulkSize(workflows.size());
+      User user = userRepository.getReferenceById(userService.currentUserId());
+      for (int i = 0; i < workflows.size(); i++) {
+          Workflow workflow = workflows.get(i);
+          workflow.setId(null);
+          try {
+              workflow.setNextRunAt(computeNextRun(workflow));
+              actionConfigService.validate(workflow.getActionType(), workflow.getActionConfig());
+          } catch (RuntimeException e) {
+              throw bulkItemError(i, e);
+          }
+          workflow.setUser(user);
+      }
+      return workflowRepository.saveAll(workflows);
+  }
+
+    @Transactional
+    public List<Workflow> updateWorkflows(List<Workflow> updates) {
+      checkBulkSize(updates.size());
+      Set<Long> ids = new LinkedHashSet<>();
+      for (int i = 0; i < updates.size(); i++) {
+          if (updates.get(i).getId() == null || !ids.add(updates.get(i).getId())) {
+              throw new RuntimeException("Invalid workflow at index " + i + ": every workflow needs a distinct id");
+          }
+      }
+      Map<Long, Workflow> existing = new HashMap<>();
+      for (Workflow workflow : workflowRepository.findByUserIdAndIdIn(userService.currentUserId(), ids)) {
+          existing.put(workflow.getId(), workflow);
+      }
+
+      for (int i = 0; i < updates.size(); i++) {
+          Workflow workflow = existing.get(updates.get(i).getId());
+          if (workflow == null) {
+              throw new RuntimeException("Workflow not found: " + updates.get(i).getId());
+          }
+          try {
+              applyUpdate(workflow, updates.get(i));
+          } catch (RuntimeException e) {
+              throw bulkItemError(i, e);
+          }
+      }
+      return updates.stream().map(update -> existing.get(update.getId())).toList();
+  }
+
+    // Returns how many workflows changed; IDs that are unknown, not the user's or already in the
+    // requested state are skipped
+    @Transactional
+    public int setWorkflowsActive(Collection<Long> ids, boolean active) {
+      checkBulkSize(ids.size());
+      Long userId = userService.currentUserId();
+      if (!active) {
+          return workflowRepository.deactivateAll(userId, ids, LocalDateTime.now());
+      }
+
+      // Activation needs each workflow's next fire time, so the rows are loaded and flushed as a batch
+      int changed = 0;
+      for (Workflow workflow : workflowRepository.findByUserIdAndIdIn(userId, ids)) {
+          if (!workflow.isActive()) {
+              workflow.setActive(true);
+              workflow.setNextRunAt(computeNextRun(workflow));
+              changed++;
+          }
+      }
+      return changed;
+  }
+
+    private void applyUpdate(Workflow existing, Workflow updated) {
       existing.setName(updated.getName());
       existing.setTriggerType(updated.getTriggerType());
       existing.setActionType(updated.getActionType());
       existing.setCronExpression(updated.getCronExpression());
       existing.setActionConfig(updated.getActionConfig());
       existing.setActive(updated.isActive());
-      return workflowRepository.save(existing);
+      existing.setNextRunAt(computeNextRun(existing));
+      actionConfigService.validate(existing.getActionType(), existing.getActionConfig());
+      actionConfigService.evict(existing.getId());
+  }
+
+    private void checkBulkSize(int size) {
+      if (size < 1 || size > MAX_BULK_SIZE) {
+          throw new RuntimeException("Invalid bulk request: send between 1 and " + MAX_BULK_SIZE + " workflows");
+      }
+  }
+
+    // Keeps the "Invalid ..." prefix the API maps to 400 and says which item failed
+    private RuntimeException bulkItemError(int index, RuntimeException e) {
+      return new RuntimeException("Invalid workflow at index " + index + ": " + e.getMessage(), e);
   }                                                                                                                                                     
                                                                                                                                                         
     public void deleteWorkflow(Long id) {                                                                                                                 
-      workflowRepository.deleteById(id);                                                                                                                
+      workflowRepository.delete(getWorkflowById(id));
+      actionConfigService.evict(id);                                                                                                                
   }                               
                                                                                                                             
+    private LocalDateTime computeNextRun(Workflow workflow) {
+      try {
+          return WorkflowSchedule.nextRunAfter(workflow, LocalDateTime.now());
+      } catch (IllegalArgumentException e) {
+          throw new RuntimeException("Invalid cron expression: " + e.getMessage());
+      }
+  }
+
   } 
\ No newline at end of file
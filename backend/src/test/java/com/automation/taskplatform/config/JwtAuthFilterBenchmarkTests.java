@@ -0,0 +1,50 @@
+package com.automation.taskplatform.config;
+
+import com.automation.taskplatform.service.JwtService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Filter cost per request for a client that keeps sending the same token, as the dashboard does
+// while polling: with the verified-token cache against full verification every time.
+// Timing-dependent, so it only runs with -Pbenchmark.
+@Tag("benchmark")
+class JwtAuthFilterBenchmarkTests {
+
+    private static final int WARMUP = 5_000;
+    private static final int REQUESTS = 20_000;
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void cachedVerificationMakesRepeatRequestsCheaper() throws Exception {
+        double uncached = nanosPerRequest(new JwtService(0));
+        double cached = nanosPerRequest(new JwtService(1_000));
+
+        assertTrue(cached < uncached, () -> String.format(
+            "%.1f us/request cached, %.1f us/request verifying every time", cached / 1_000, uncached / 1_000));
+    }
+
+    private static double nanosPerRequest(JwtService jwtService) throws Exception {
+        JwtAuthFilter filter = new JwtAuthFilter(jwtService, new RequestAttributeSecurityContextRepository());
+        String token = jwtService.generateToken(JwtAuthFilterTests.user());
+
+        for (int i = 0; i < WARMUP; i++) {
+            filter.doFilter(JwtAuthFilterTests.request(token), new MockHttpServletResponse(), JwtAuthFilterTests.NO_OP);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            filter.doFilter(JwtAuthFilterTests.request(token), new MockHttpServletResponse(), JwtAuthFilterTests.NO_OP);
+        }
+        return (double) (System.nanoTime() - start) / REQUESTS;
+    }
+}
@@ -0,0 +1,90 @@
+package com.automation.taskplatform.config;
+
+import com.automation.taskplatform.model.AuthenticatedUser;
+import com.automation.taskplatform.model.User;
+import com.automation.taskplatform.service.JwtService;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JwtAuthFilterTests {
+
+    static final FilterChain NO_OP = (request, response) -> {};
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void repeatRequestsWithTheSameTokenAreVerifiedOnce() throws Exception {
+        CountingJwtService cached = new CountingJwtService(1_000);
+        sendRepeatedly(cached, 3);
+        assertEquals(1, cached.parses);
+
+        CountingJwtService uncached = new CountingJwtService(0);
+        sendRepeatedly(uncached, 3);
+        assertEquals(3, uncached.parses);
+    }
+
+    @Test
+    void tamperedTokensAreNotServedFromTheCache() throws Exception {
+        JwtService jwtService = new JwtService(1_000);
+        JwtAuthFilter filter = new JwtAuthFilter(jwtService, new RequestAttributeSecurityContextRepository());
+        String token = jwtService.generateToken(user());
+
+        filter.doFilter(request(token), new MockHttpServletResponse(), NO_OP);
+        assertEquals(new AuthenticatedUser(1L, "user@example.com"), SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+        assertEquals("user@example.com", SecurityContextHolder.getContext().getAuthentication().getName());
+
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request(token.substring(0, token.length() - 2) + "xx"), new MockHttpServletResponse(), NO_OP);
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    private static void sendRepeatedly(JwtService jwtService, int requests) throws Exception {
+        JwtAuthFilter filter = new JwtAuthFilter(jwtService, new RequestAttributeSecurityContextRepository());
+        String token = jwtService.generateToken(user());
+        for (int i = 0; i < requests; i++) {
+            SecurityContextHolder.clearContext();
+            filter.doFilter(request(token), new MockHttpServletResponse(), NO_OP);
+            assertEquals("user@example.com", SecurityContextHolder.getContext().getAuthentication().getName());
+        }
+    }
+
+    static User user() {
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("user@example.com");
+        return user;
+    }
+
+    static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/workflows");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+
+    private static class CountingJwtService extends JwtService {
+
+        int parses;
+
+        CountingJwtService(int cacheSize) {
+            super(cacheSize);
+        }
+
+        @Override
+        protected Claims parseClaims(String token) {
+            parses++;
+            return super.parseClaims(token);
+        }
+    }
+}
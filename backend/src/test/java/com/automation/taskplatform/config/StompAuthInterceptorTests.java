@@ -0,0 +1,73 @@
+package com.automation.taskplatform.config;
+
+import com.automation.taskplatform.model.AuthenticatedUser;
+import com.automation.taskplatform.model.User;
+import com.automation.taskplatform.service.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StompAuthInterceptorTests {
+
+    private final JwtService jwtService = new JwtService(100);
+    private final StompAuthInterceptor interceptor =
+        new StompAuthInterceptor(jwtService, new StompSessionExpiry(new ConcurrentTaskScheduler()));
+
+    @Test
+    void connectWithAValidTokenBecomesTheTokensUser() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.addNativeHeader("Authorization", "Bearer " + jwtService.generateToken(user()));
+        accessor.setSessionId("session-1");
+        accessor.setLeaveMutable(true);
+
+        interceptor.preSend(message(accessor), null);
+        assertEquals(new AuthenticatedUser(1L, "user@example.com"), accessor.getUser());
+    }
+
+    @Test
+    void connectWithoutAValidTokenIsRejected() {
+        StompHeaderAccessor missing = StompHeaderAccessor.create(StompCommand.CONNECT);
+        assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(message(missing), null));
+
+        StompHeaderAccessor tampered = StompHeaderAccessor.create(StompCommand.CONNECT);
+        String token = jwtService.generateToken(user());
+        tampered.addNativeHeader("Authorization", "Bearer " + token.substring(0, token.length() - 2) + "xx");
+        assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(message(tampered), null));
+    }
+
+    @Test
+    void subscriptionsAreLimitedToTheUsersOwnQueues() {
+        StompHeaderAccessor own = subscribe("/user/queue/executions");
+        assertDoesNotThrow(() -> interceptor.preSend(message(own), null));
+
+        // Session-suffixed broker queues of other users are not addressable directly
+        StompHeaderAccessor other = subscribe("/queue/executions-userabc123");
+        assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(message(other), null));
+    }
+
+    private static StompHeaderAccessor subscribe(String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setDestination(destination);
+        accessor.setUser(new AuthenticatedUser(1L, "user@example.com"));
+        return accessor;
+    }
+
+    private static Message<byte[]> message(StompHeaderAccessor accessor) {
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("user@example.com");
+        return user;
+    }
+}
@@ -0,0 +1,61 @@
+package com.automation.taskplatform.service;
+
+import com.automation.taskplatform.model.ActionConfig;
+import com.automation.taskplatform.model.Workflow;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActionConfigServiceTests {
+
+    private final ActionConfigService service = new ActionConfigService(new EmailTemplateService(), 10);
+
+    @Test
+    void parsesConfigsIntoTypedRecordsWithDefaults() {
+        ActionConfig recap = service.validate("EMAIL_RECAP", "{\"hoursBack\": \"24\", \"template\": \"compact\"}").config();
+        assertEquals(new ActionConfig.EmailRecap(24, "compact", null), recap);
+
+        ActionConfig reminder = service.validate("SEND_EMAIL", "{\"to\": \"\", \"body\": \"Standup\"}").config();
+        assertEquals(new ActionConfig.SendEmail(null, "Reminder from TaskFlow", "Standup", null, null), reminder);
+
+        assertEquals(ActionConfigService.DEFAULT_HOURS_BACK,
+            ((ActionConfig.EmailRecap) service.validate("EMAIL_RECAP", null).config()).hoursBack());
+    }
+
+    @Test
+    void rejectsInvalidConfigsWithAMessageTheApiTurnsIntoABadRequest() {
+        for (String[] invalid : new String[][] {
+                {"EMAIL_RECAP", "{\"hoursBack\": 0}"},
+                {"EMAIL_RECAP", "{\"hoursBack\": \"a day\"}"},
+                {"EMAIL_RECAP", "[1, 2]"},
+                {"EMAIL_RECAP", "{not json"},
+                {"EMAIL_RECAP", "{\"template\": \"fancy\"}"},
+                {"SEND_EMAIL", "{\"to\": \"not an address\"}"},
+                {"SEND_EMAIL", "{\"subject\": \"Hi\\r\\nBcc: victim@example.com\"}"},
+                {"SEND_EMAIL", "{\"customTemplate\": \"{{#open}}\"}"},
+                {"DELETE_EVERYTHING", "{}"}}) {
+            RuntimeException e = assertThrows(RuntimeException.class, () -> service.validate(invalid[0], invalid[1]));
+            assertTrue(e.getMessage().startsWith("Invalid"), e.getMessage());
+        }
+    }
+
+    @Test
+    void compiledConfigIsReusedUntilTheStoredConfigChanges() {
+        Workflow workflow = new Workflow();
+        workflow.setId(1L);
+        workflow.setActionType("SEND_EMAIL");
+        workflow.setActionConfig("{\"to\": \"a@example.com\"}");
+
+        ActionConfigService.CompiledAction first = service.compile(workflow);
+        assertSame(first, service.compile(workflow));
+
+        workflow.setActionConfig("{\"subject\": \"Updated\"}");
+        ActionConfigService.CompiledAction second = service.compile(workflow);
+        assertNull(((ActionConfig.SendEmail) second.config()).to());
+        assertEquals("Updated", ((ActionConfig.SendEmail) second.config()).subject());
+    }
+}
@@ -0,0 +1,140 @@
+package com.automation.taskplatform.service;
+
+import com.automation.taskplatform.repository.AiSummaryRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.client.RequestMatcher;
+import org.springframework.web.client.RestTemplate;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class AiSummaryServiceTests {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String OPENAI_URL = "https://api.openai.com/v1/chat/completions";
+
+    private final List<AiSummaryService.EmailInfo> emails = List.of(
+        new AiSummaryService.EmailInfo("m1", "a@example.com", "One", "first"),
+        new AiSummaryService.EmailInfo("m2", "b@example.com", "Two", "second"),
+        new AiSummaryService.EmailInfo("m3", "c@example.com", "Three", "third"));
+
+    private AiSummaryService service;
+    private MockRestServiceServer openAi;
+
+    @BeforeEach
+    void setUp() {
+        service = new AiSummaryService(new OpenAiRateLimiter(0, 0), Runnable::run,
+            new AiSummaryCache(emptyRepository(), 100, 30), UpstreamGuard.unlimited("openai"));
+        ReflectionTestUtils.setField(service, "apiKey", "test-key");
+        openAi = MockRestServiceServer.bindTo((RestTemplate) ReflectionTestUtils.getField(service, "restTemplate")).build();
+    }
+
+    @Test
+    void batchReplyIsMatchedToEmailsById() throws Exception {
+        expectBatch(reply("{\"summaries\": [{\"id\": 3, \"summary\": \"S3\"}, {\"id\": 1, \"summary\": \"S1\"}, {\"id\": 2, \"summary\": \"S2\"}]}", "stop"));
+
+        assertEquals(List.of("S1", "S2", "S3"), service.summarizeEmails(1L, emails));
+        openAi.verify();
+    }
+
+    @Test
+    void incompleteBatchReplyFallsBackToOneRequestPerEmail() throws Exception {
+        expectBatch(reply("{\"summaries\": [{\"id\": 1, \"summary\": \"S1\"}, {\"id\": 2, \"summary\": \" \"}]}", "stop"));
+        expectSingle(reply("single 1", "stop"));
+        expectSingle(reply("single 2", "stop"));
+        expectSingle(reply("single 3", "stop"));
+
+        assertEquals(List.of("single 1", "single 2", "single 3"), service.summarizeEmails(1L, emails));
+        openAi.verify();
+    }
+
+    @Test
+    void truncatedOrUnparseableBatchReplyFallsBackToOneRequestPerEmail() throws Exception {
+        expectBatch(reply("{\"summaries\": [{\"id\": 1, \"summary\": \"S1\"}, {\"id\": 2, \"summ", "length"));
+        expectSingle(reply("single 1", "stop"));
+        expectSingle(reply("single 2", "stop"));
+        expectSingle(reply("single 3", "stop"));
+        assertEquals(List.of("single 1", "single 2", "single 3"), service.summarizeEmails(1L, emails));
+        openAi.verify();
+
+        setUp();
+        expectBatch(reply("Sure! Here are your summaries", "stop"));
+        expectSingle(reply("single 1", "stop"));
+        expectSingle(reply("single 2", "stop"));
+        expectSingle(reply("single 3", "stop"));
+        assertEquals(List.of("single 1", "single 2", "single 3"), service.summarizeEmails(1L, emails));
+        openAi.verify();
+    }
+
+    @Test
+    void throttledBatchIsNotSplitIntoPerEmailRequests() {
+        openAi.expect(requestTo(OPENAI_URL))
+            .andExpect(jsonPath("$.response_format.type").value("json_object"))
+            .andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS));
+
+        assertEquals(Arrays.asList(null, null, null), service.summarizeEmails(1L, emails));
+        openAi.verify();
+    }
+
+    @Test
+    void cachedSummariesAreNotRequestedAgain() throws Exception {
+        expectBatch(reply("{\"summaries\": [{\"id\": 1, \"summary\": \"S1\"}, {\"id\": 2, \"summary\": \"S2\"}]}", "stop"));
+        expectSingle(reply("S3", "stop"));
+        expectSingle(reply("T1", "stop"));
+
+        assertEquals(List.of("S1", "S2"), service.summarizeEmails(1L, emails.subList(0, 2)));
+        // Only m3 is new the second time, and nothing the third
+        assertEquals(List.of("S1", "S2", "S3"), service.summarizeEmails(1L, emails));
+        assertEquals(List.of("S1", "S2", "S3"), service.summarizeEmails(1L, emails));
+        // Another user's summaries are cached separately
+        assertEquals(List.of("T1"), service.summarizeEmails(2L, emails.subList(0, 1)));
+        openAi.verify();
+    }
+
+    private void expectBatch(String reply) {
+        expect(jsonPath("$.response_format.type").value("json_object"), reply);
+    }
+
+    private void expectSingle(String reply) {
+        expect(jsonPath("$.response_format").doesNotExist(), reply);
+    }
+
+    private void expect(RequestMatcher kind, String reply) {
+        openAi.expect(requestTo(OPENAI_URL))
+            .andExpect(method(HttpMethod.POST))
+            .andExpect(kind)
+            .andRespond(withSuccess(reply, MediaType.APPLICATION_JSON));
+    }
+
+    private static String reply(String content, String finishReason) throws Exception {
+        return MAPPER.writeValueAsString(Map.of("choices", List.of(
+            Map.of("finish_reason", finishReason, "message", Map.of("role", "assistant", "content", content)))));
+    }
+
+    // Stores nothing, so every lookup past the in-memory tier is a miss
+    private static AiSummaryRepository emptyRepository() {
+        return (AiSummaryRepository) Proxy.newProxyInstance(AiSummaryRepository.class.getClassLoader(),
+            new Class<?>[] {AiSummaryRepository.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "findFresh" -> List.of();
+                case "insertIfAbsent" -> 0;
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
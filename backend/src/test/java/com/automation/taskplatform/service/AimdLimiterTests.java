@@ -0,0 +1,54 @@
+package com.automation.taskplatform.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AimdLimiterTests {
+
+    private final ManualClock clock = new ManualClock();
+
+    @Test
+    void callsBeyondTheLimitGiveUpAtTheDeadline() throws Exception {
+        AimdLimiter limiter = new AimdLimiter(2, 1, 10, 0.5, clock);
+        assertTrue(limiter.acquire(clock.getAsLong()));
+        assertTrue(limiter.acquire(clock.getAsLong()));
+        assertFalse(limiter.acquire(clock.getAsLong()));
+        assertEquals(2, limiter.inFlight());
+
+        // Releasing without a verdict frees the slot and leaves the limit alone
+        limiter.onIgnored();
+        assertEquals(2, limiter.limit());
+        assertTrue(limiter.acquire(clock.getAsLong()));
+    }
+
+    @Test
+    void limitGrowsByAboutOnePerWindowOfSuccessesAndHalvesOnOverload() throws Exception {
+        AimdLimiter limiter = new AimdLimiter(2, 2, 4, 0.5, clock);
+        // 2 -> 2.5 -> 2.9 -> 3.23
+        succeed(limiter, 2);
+        assertEquals(2, limiter.limit());
+        succeed(limiter, 1);
+        assertEquals(3, limiter.limit());
+        succeed(limiter, 20);
+        assertEquals(4, limiter.limit());
+
+        limiter.acquire(clock.getAsLong());
+        limiter.onOverload();
+        assertEquals(2, limiter.limit());
+
+        limiter.acquire(clock.getAsLong());
+        limiter.onOverload();
+        assertEquals(2, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    private void succeed(AimdLimiter limiter, int calls) throws InterruptedException {
+        for (int i = 0; i < calls; i++) {
+            assertTrue(limiter.acquire(clock.getAsLong()));
+            limiter.onSuccess();
+        }
+    }
+}
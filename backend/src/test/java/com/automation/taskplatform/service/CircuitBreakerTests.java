@@ -0,0 +1,68 @@
+package com.automation.taskplatform.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTests {
+
+    private final ManualClock clock = new ManualClock();
+    private final CircuitBreaker breaker = new CircuitBreaker(3, 1_000, clock);
+
+    @Test
+    void opensAfterConsecutiveFailuresAndRejectsUntilTheCoolDownPasses() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1_000, breaker.millisUntilRetry());
+
+        clock.advanceMillis(400);
+        assertFalse(breaker.tryAcquire());
+        assertEquals(600, breaker.millisUntilRetry());
+
+        clock.advanceMillis(600);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    }
+
+    @Test
+    void halfOpenLetsOneTrialThroughThatDecidesTheNextState() {
+        open();
+
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        // An inconclusive trial frees the slot for another one
+        breaker.onIgnored();
+        assertTrue(breaker.tryAcquire());
+
+        // A failed trial re-opens with a fresh cool-down
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(1_000, breaker.millisUntilRetry());
+
+        clock.advanceMillis(1_000);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(0, breaker.consecutiveFailures());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+        clock.advanceMillis(1_000);
+    }
+}
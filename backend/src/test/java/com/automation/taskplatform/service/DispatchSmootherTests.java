@@ -0,0 +1,45 @@
+package com.automation.taskplatform.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DispatchSmootherTests {
+
+    @Test
+    void offsetsAreStablePerWorkflowAndSpreadOverTheWindow() {
+        DispatchSmoother smoother = new DispatchSmoother(60, null);
+        Set<Integer> offsets = new HashSet<>();
+        for (long id = 1; id <= 1_000; id++) {
+            int offset = smoother.offsetSeconds(id);
+            assertTrue(offset >= 0 && offset < 60);
+            assertEquals(offset, smoother.offsetSeconds(id));
+            offsets.add(offset);
+        }
+        assertEquals(60, offsets.size());
+
+        LocalDateTime nine = LocalDateTime.of(2026, 1, 5, 9, 0);
+        assertEquals(nine, new DispatchSmoother(0, null).runAt(42L, nine));
+    }
+
+    @Test
+    void dispatchPermitsFollowTheRateCap() {
+        ManualClock clock = new ManualClock();
+        DispatchSmoother smoother = new DispatchSmoother(0, new TokenBucket(2, 2, clock));
+        assertEquals(2, smoother.acquireDispatchPermits(5));
+        assertEquals(0, smoother.acquireDispatchPermits(5));
+
+        clock.advanceMillis(500);
+        assertEquals(1, smoother.acquireDispatchPermits(5));
+
+        smoother.releaseDispatchPermits(1);
+        assertEquals(1, smoother.acquireDispatchPermits(5));
+
+        assertEquals(100, new DispatchSmoother(60, 0).acquireDispatchPermits(100));
+    }
+}
@@ -0,0 +1,27 @@
+package com.automation.taskplatform.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EmailOutboxServiceTests {
+
+    private static final double MAX_JITTER = Math.nextDown(1.0);
+
+    @Test
+    void retryDelayDoublesPerAttemptWithJitterUpToTheCap() {
+        EmailOutboxService outbox = new EmailOutboxService(null, null, null);
+        ReflectionTestUtils.setField(outbox, "initialBackoffSeconds", 30L);
+        ReflectionTestUtils.setField(outbox, "maxBackoffSeconds", 3600L);
+
+        assertEquals(15, outbox.retryDelaySeconds(1, 0));
+        assertEquals(30, outbox.retryDelaySeconds(1, MAX_JITTER));
+        assertEquals(60, outbox.retryDelaySeconds(3, 0));
+        assertEquals(120, outbox.retryDelaySeconds(3, MAX_JITTER));
+        assertEquals(1_800, outbox.retryDelaySeconds(8, 0));
+        assertEquals(3_600, outbox.retryDelaySeconds(8, MAX_JITTER));
+        // The shift is bounded, so very high attempt counts stay at the cap instead of overflowing
+        assertEquals(3_600, outbox.retryDelaySeconds(500, MAX_JITTER));
+    }
+}
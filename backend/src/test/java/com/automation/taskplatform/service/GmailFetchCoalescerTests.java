@@ -0,0 +1,118 @@
+package com.automation.taskplatform.service;
+
+import com.automation.taskplatform.model.User;
+import com.automation.taskplatform.service.GmailService.EmailFetch;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GmailFetchCoalescerTests {
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private final User user = GmailServiceTests.user();
+
+    @Test
+    void recapsInsideARunningFetchWaitForItAndTakeTheirOwnSlice() throws Exception {
+        StubGmailService gmail = new StubGmailService();
+        gmail.release = new CountDownLatch(1);
+        GmailFetchCoalescer coalescer = new GmailFetchCoalescer(gmail, 60);
+
+        CompletableFuture<EmailFetch> daily = CompletableFuture.supplyAsync(() -> fetch(coalescer, now.minusHours(24)));
+        assertTrue(gmail.entered.await(5, TimeUnit.SECONDS));
+        CompletableFuture<EmailFetch> hourly = CompletableFuture.supplyAsync(() -> fetch(coalescer, now.minusHours(1)));
+        gmail.release.countDown();
+
+        assertEquals(List.of("old", "recent"), ids(daily.get(5, TimeUnit.SECONDS)));
+        assertEquals(List.of("recent"), ids(hourly.get(5, TimeUnit.SECONDS)));
+        assertEquals(1, gmail.calls.get());
+    }
+
+    @Test
+    void windowsReachingFurtherBackOrStaleFetchesStartANewOne() throws Exception {
+        StubGmailService gmail = new StubGmailService();
+        GmailFetchCoalescer coalescer = new GmailFetchCoalescer(gmail, 60);
+        coalescer.getNewEmails(user, now.minusHours(1), null, new ExecutionTimer());
+        coalescer.getNewEmails(user, now.minusHours(24), null, new ExecutionTimer());
+        assertEquals(2, gmail.calls.get());
+
+        GmailFetchCoalescer unshared = new GmailFetchCoalescer(gmail, -1);
+        unshared.getNewEmails(user, now.minusHours(1), null, new ExecutionTimer());
+        unshared.getNewEmails(user, now.minusHours(1), null, new ExecutionTimer());
+        assertEquals(4, gmail.calls.get());
+    }
+
+    @Test
+    void failedFetchIsNotReused() throws Exception {
+        StubGmailService gmail = new StubGmailService();
+        gmail.failures = 1;
+        GmailFetchCoalescer coalescer = new GmailFetchCoalescer(gmail, 60);
+
+        assertThrows(IOException.class, () -> coalescer.getNewEmails(user, now.minusHours(1), null, new ExecutionTimer()));
+        assertEquals(List.of("recent"), ids(coalescer.getNewEmails(user, now.minusHours(1), null, new ExecutionTimer())));
+        assertEquals(2, gmail.calls.get());
+    }
+
+    private EmailFetch fetch(GmailFetchCoalescer coalescer, LocalDateTime since) {
+        try {
+            return coalescer.getNewEmails(user, since, null, new ExecutionTimer());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static List<String> ids(EmailFetch fetch) {
+        return fetch.emails().stream().map(GmailService.EmailSummary::getMessageId).toList();
+    }
+
+    // Returns one message from 12 hours ago and one from 30 minutes ago, filtered by since
+    private class StubGmailService extends GmailService {
+
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release;
+        int failures;
+
+        StubGmailService() {
+            super(null, null, new NetHttpTransport(), UpstreamGuard.unlimited("gmail"), 10);
+        }
+
+        @Override
+        public EmailFetch getNewEmails(User user, LocalDateTime since, BigInteger historyCursor, ExecutionTimer timer) throws IOException {
+            calls.incrementAndGet();
+            entered.countDown();
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failures > 0) {
+                failures--;
+                throw new IOException("Gmail unavailable");
+            }
+            return new EmailFetch(List.of(message("old", now.minusHours(12)), message("recent", now.minusMinutes(30))),
+                BigInteger.ONE, LocalDateTime.now()).since(since);
+        }
+
+        private GmailService.EmailSummary message(String id, LocalDateTime receivedAt) {
+            GmailService.EmailSummary summary = new GmailService.EmailSummary();
+            summary.setMessageId(id);
+            summary.setInternalDate(receivedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            return summary;
+        }
+    }
+}
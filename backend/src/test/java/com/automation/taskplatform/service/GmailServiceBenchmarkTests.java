@@ -0,0 +1,33 @@
+package com.automation.taskplatform.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Wall time of a recap fetch against a stub with per-request latency: the batched metadata call
+// should cost about two round trips, not one per message. Timing-dependent, so it only runs
+// with -Pbenchmark.
+@Tag("benchmark")
+class GmailServiceBenchmarkTests {
+
+    private static final int MESSAGES = 50;
+    private static final long LATENCY_MS = 40;
+
+    @Test
+    void batchedFetchBeatsSequentialGets() throws Exception {
+        try (GmailStubServer stub = new GmailStubServer(MESSAGES, LATENCY_MS)) {
+            GmailService gmailService = GmailServiceTests.gmailService(stub);
+
+            long start = System.nanoTime();
+            gmailService.getEmailsSince(GmailServiceTests.user(), LocalDateTime.now().minusHours(18), new ExecutionTimer());
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            long sequentialEstimateMs = (MESSAGES + 1) * LATENCY_MS;
+            assertTrue(elapsedMs < sequentialEstimateMs / 2, () -> String.format(
+                "fetched %d emails in %d ms, sequential gets would take at least %d ms", MESSAGES, elapsedMs, sequentialEstimateMs));
+        }
+    }
+}
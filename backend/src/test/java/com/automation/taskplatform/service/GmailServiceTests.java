@@ -0,0 +1,84 @@
+package com.automation.taskplatform.service;
+
+import com.automation.taskplatform.model.User;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GmailServiceTests {
+
+    private static final int MESSAGES = 50;
+
+    @Test
+    void getEmailsSinceFetchesMetadataInOneBatchRoundTrip() throws Exception {
+        try (GmailStubServer stub = new GmailStubServer(MESSAGES, 0)) {
+            List<GmailService.EmailSummary> emails = gmailService(stub)
+                .getEmailsSince(user(), LocalDateTime.now().minusHours(18), new ExecutionTimer());
+
+            // One list call plus one batch call, instead of one list plus one get per message
+            assertEquals(2, stub.httpRequests());
+            assertEquals(MESSAGES, emails.size());
+            for (int i = 0; i < MESSAGES; i++) {
+                assertEquals("Subject m" + i, emails.get(i).getSubject());
+                assertEquals("sender-m" + i + "@example.com", emails.get(i).getFrom());
+            }
+        }
+    }
+
+    @Test
+    void messagesDeletedSinceListingAreSkipped() throws Exception {
+        try (GmailStubServer stub = new GmailStubServer(3, 0)) {
+            stub.failPart("m1", 404);
+            List<GmailService.EmailSummary> emails = gmailService(stub)
+                .getEmailsSince(user(), LocalDateTime.now().minusHours(18), new ExecutionTimer());
+
+            assertEquals(List.of("m0", "m2"), emails.stream().map(GmailService.EmailSummary::getMessageId).toList());
+        }
+    }
+
+    // Skipping the part would let the history cursor move past the message for good
+    @Test
+    void throttledBatchPartFailsTheFetchAndCountsAsOverload() throws Exception {
+        try (GmailStubServer stub = new GmailStubServer(3, 0)) {
+            stub.failPart("m1", 404);
+            stub.failPart("m2", 429);
+            UpstreamGuard guard = new UpstreamGuard("gmail", new UpstreamGuard.Settings(0, 0, 4, 1, 4, 1, 60_000, 0),
+                e -> e instanceof GoogleJsonResponseException response && response.getStatusCode() == 429
+                    ? UpstreamGuard.Outcome.OVERLOAD : UpstreamGuard.Outcome.CLIENT_ERROR);
+
+            GoogleJsonResponseException failure = assertThrows(GoogleJsonResponseException.class, () -> gmailService(stub, guard)
+                .getEmailsSince(user(), LocalDateTime.now().minusHours(18), new ExecutionTimer()));
+            assertEquals(429, failure.getStatusCode());
+            assertTrue(guard.isOpen());
+        }
+    }
+
+    static GmailService gmailService(GmailStubServer stub) {
+        return gmailService(stub, UpstreamGuard.unlimited("gmail"));
+    }
+
+    static GmailService gmailService(GmailStubServer stub, UpstreamGuard gmailGuard) {
+        NetHttpTransport transport = new NetHttpTransport();
+        GmailService gmailService = new GmailService(
+            new GoogleOAuthService(null, null, transport, Runnable::run, 10), new AiSummaryService(new OpenAiRateLimiter(0, 0), Runnable::run, null, UpstreamGuard.unlimited("openai")),
+            transport, gmailGuard, 10);
+        ReflectionTestUtils.setField(gmailService, "rootUrl", stub.rootUrl());
+        return gmailService;
+    }
+
+    static User user() {
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("user@example.com");
+        user.setGoogleAccessToken("stub-token");
+        return user;
+    }
+}
@@ -0,0 +1,131 @@
+package com.automation.taskplatform.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Minimal local stand-in for the Gmail REST API: serves messages.list, messages.get and the
+// multipart batch endpoint, adding a fixed latency to every HTTP round trip. Single batch parts
+// can be made to fail with a given status.
+class GmailStubServer implements AutoCloseable {
+
+    private static final Pattern MESSAGE_ID = Pattern.compile("/gmail/v1/users/me/messages/([^?/\\s]+)");
+
+    private final HttpServer server;
+    private final int messageCount;
+    private final long latencyMillis;
+    private final AtomicInteger httpRequests = new AtomicInteger();
+    private final Map<String, Integer> failingParts = new ConcurrentHashMap<>();
+
+    GmailStubServer(int messageCount, long latencyMillis) throws IOException {
+        this.messageCount = messageCount;
+        this.latencyMillis = latencyMillis;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/gmail/v1/users/me/messages", this::handleMessages);
+        server.createContext("/batch", this::handleBatch);
+        server.start();
+    }
+
+    String rootUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    void failPart(String messageId, int status) {
+        failingParts.put(messageId, status);
+    }
+
+    int httpRequests() {
+        return httpRequests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handleMessages(HttpExchange exchange) throws IOException {
+        roundTrip();
+        Matcher matcher = MESSAGE_ID.matcher(exchange.getRequestURI().getPath());
+        String body = matcher.find() ? messageJson(matcher.group(1)) : listJson();
+        respond(exchange, "application/json; charset=UTF-8", body);
+    }
+
+    // Answers each part of a multipart/mixed batch with the matching message, in request order
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        roundTrip();
+        String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+
+        List<String> ids = new ArrayList<>();
+        Matcher matcher = MESSAGE_ID.matcher(request);
+        while (matcher.find()) {
+            ids.add(matcher.group(1));
+        }
+
+        String boundary = "batch_stub";
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < ids.size(); i++) {
+            Integer status = failingParts.get(ids.get(i));
+            body.append("--").append(boundary).append("\r\n")
+                .append("Content-Type: application/http\r\n")
+                .append("Content-ID: <response-").append(i + 1).append(">\r\n\r\n")
+                .append(status == null ? "HTTP/1.1 200 OK" : "HTTP/1.1 " + status + " Error").append("\r\n")
+                .append("Content-Type: application/json; charset=UTF-8\r\n\r\n")
+                .append(status == null ? messageJson(ids.get(i)) : errorJson(status)).append("\r\n");
+        }
+        body.append("--").append(boundary).append("--\r\n");
+        respond(exchange, "multipart/mixed; boundary=" + boundary, body.toString());
+    }
+
+    private String listJson() {
+        StringBuilder json = new StringBuilder("{\"messages\":[");
+        for (int i = 0; i < messageCount; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":\"m").append(i).append("\",\"threadId\":\"t").append(i).append("\"}");
+        }
+        return json.append("],\"resultSizeEstimate\":").append(messageCount).append("}").toString();
+    }
+
+    private static String messageJson(String id) {
+        return """
+            {"id":"%s","threadId":"t","internalDate":"1700000000000","snippet":"Snippet of %s",
+             "payload":{"headers":[{"name":"From","value":"sender-%s@example.com"},
+                                   {"name":"Subject","value":"Subject %s"},
+                                   {"name":"Date","value":"Tue, 14 Nov 2023 22:13:20 +0000"}]}}
+            """.formatted(id, id, id, id);
+    }
+
+    private static String errorJson(int status) {
+        String reason = status == 429 ? "rateLimitExceeded" : status == 404 ? "notFound" : "backendError";
+        return """
+            {"error":{"code":%d,"message":"%s","errors":[{"domain":"global","reason":"%s","message":"%s"}]}}
+            """.formatted(status, reason, reason, reason);
+    }
+
+    private void roundTrip() {
+        httpRequests.incrementAndGet();
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.automation.taskplatform.service;
+
+import com.automation.taskplatform.model.User;
+import com.automation.taskplatform.repository.UserRepository;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GoogleOAuthServiceTests {
+
+    private final User stored = new User();
+    private Runnable onTokenRequest = () -> {};
+    private GoogleOAuthService service;
+
+    @BeforeEach
+    void setUp() {
+        stored.setId(1L);
+        stored.setEmail("user@example.com");
+        stored.setGoogleAccessToken("expired");
+        stored.setGoogleRefreshToken("refresh-1");
+        stored.setGoogleTokenExpiry(LocalDateTime.now().minusMinutes(1));
+
+        MockHttpTransport google = new MockHttpTransport.Builder()
+            .setLowLevelHttpResponse(new MockLowLevelHttpResponse() {
+                @Override
+                public InputStream getContent() throws IOException {
+                    onTokenRequest.run();
+                    return super.getContent();
+                }
+            }.setContentType("application/json")
+                .setContent("{\"access_token\": \"fresh\", \"expires_in\": 3600, \"token_type\": \"Bearer\"}"))
+            .build();
+        UserRepository users = repository();
+        service = new GoogleOAuthService(users, new UserService(users, 10, 30), google, Runnable::run, 10);
+        ReflectionTestUtils.setField(service, "clientId", "client");
+        ReflectionTestUtils.setField(service, "clientSecret", "secret");
+    }
+
+    @Test
+    void refreshedTokenIsStoredAndCached() throws Exception {
+        assertEquals("fresh", service.getAccessToken(copy(stored)));
+        assertEquals("fresh", stored.getGoogleAccessToken());
+    }
+
+    @Test
+    void refreshFinishingAfterDisconnectIsDropped() {
+        User loaded = copy(stored);
+        // The user disconnects while the token request is in flight
+        onTokenRequest = () -> {
+            stored.setGoogleAccessToken(null);
+            stored.setGoogleRefreshToken(null);
+            stored.setGoogleTokenExpiry(null);
+            service.evictToken(1L);
+        };
+
+        assertThrows(IOException.class, () -> service.getAccessToken(loaded));
+        assertNull(stored.getGoogleAccessToken());
+        assertFalse(service.isConnected(stored));
+        @SuppressWarnings("unchecked")
+        LruCache<Long, ?> tokens = (LruCache<Long, ?>) ReflectionTestUtils.getField(service, "tokens");
+        assertNull(tokens.get(1L));
+    }
+
+    private static User copy(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setEmail(user.getEmail());
+        copy.setGoogleAccessToken(user.getGoogleAccessToken());
+        copy.setGoogleRefreshToken(user.getGoogleRefreshToken());
+        copy.setGoogleTokenExpiry(user.getGoogleTokenExpiry());
+        return copy;
+    }
+
+    // One stored user; the token update applies the same conditions as the query
+    private UserRepository repository() {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+            new Class<?>[] {UserRepository.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "findById" -> Optional.of(copy(stored));
+                case "updateGoogleAccessToken" -> {
+                    LocalDateTime expiry = (LocalDateTime) args[3];
+                    if (!Objects.equals(stored.getGoogleRefreshToken(), args[1])
+                            || (stored.getGoogleTokenExpiry() != null && !stored.getGoogleTokenExpiry().isBefore(expiry))) {
+                        yield 0;
+                    }
+                    stored.setGoogleAccessToken((String) args[2]);
+                    stored.setGoogleTokenExpiry(expiry);
+                    yield 1;
+                }
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
@@ -0,0 +1,18 @@
+package com.automation.taskplatform.service;
+
+import java.util.function.LongSupplier;
+
+// Stands in for System.nanoTime() so time-based limiters can be stepped through deterministically
+class ManualClock implements LongSupplier {
+
+    private long nanos = 1_000_000_000L;
+
+    @Override
+    public long getAsLong() {
+        return nanos;
+    }
+
+    void advanceMillis(long millis) {
+        nanos += millis * 1_000_000;
+    }
+}
@@ -0,0 +1,103 @@
+package com.automation.taskplatform.service;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutgoingEmailTests {
+
+    @Test
+    void templateRendersStraightIntoAParseableMimeMessage() throws Exception {
+        EmailTemplate template = EmailTemplate.compile(
+            "<ul>{{#emails}}<li>{{sender}}: {{{note}}}</li>{{/emails}}</ul>{{^emails}}none{{/emails}}");
+        String note = "Résumé ✓ ".repeat(2_000);
+        Map<String, Object> context = Map.of("emails", List.of(
+            Map.of("sender", "Tom & \"Jerry\" <tj@example.com>", "note", "<b>hi</b>"),
+            Map.of("sender", "Ann 📧", "note", note)));
+
+        try (OutgoingEmail email = new OutgoingEmail("me@example.com", "you@example.com", "📧 Recap")) {
+            template.render(email.body(), context);
+
+            MimeMessage parsed = new MimeMessage(Session.getInstance(new Properties()), new ByteArrayInputStream(email.toByteArray()));
+
+            assertEquals("📧 Recap", parsed.getSubject());
+            assertEquals("you@example.com", parsed.getAllRecipients()[0].toString());
+            assertEquals("<ul><li>Tom &amp; &quot;Jerry&quot; &lt;tj@example.com&gt;: <b>hi</b></li><li>Ann 📧: " + note + "</li></ul>",
+                parsed.getContent());
+        }
+    }
+
+    @Test
+    void plainHtmlBodyIsSentUnchanged() throws Exception {
+        try (OutgoingEmail email = new OutgoingEmail("me@example.com", "you@example.com", "Reminder")) {
+            email.body().write("<p>Don't forget</p>".getBytes(StandardCharsets.UTF_8));
+
+            MimeMessage parsed = new MimeMessage(Session.getInstance(new Properties()), new ByteArrayInputStream(email.toByteArray()));
+
+            assertEquals("<p>Don't forget</p>", parsed.getContent());
+        }
+    }
+
+    @Test
+    void subjectCannotInjectHeadersAndLongSubjectsAreFolded() throws Exception {
+        try (OutgoingEmail email = new OutgoingEmail("me@example.com", "you@example.com", "Hi\r\nBcc: victim@example.com\nX: y")) {
+            email.body().write("<p>Hi</p>".getBytes(StandardCharsets.UTF_8));
+            byte[] raw = email.toByteArray();
+
+            String headers = new String(raw, StandardCharsets.US_ASCII).split("\r\n\r\n", 2)[0];
+            assertEquals(List.of("From", "To", "Subject", "MIME-Version", "Content-Type", "Content-Transfer-Encoding"),
+                headerNames(headers));
+            MimeMessage parsed = new MimeMessage(Session.getInstance(new Properties()), new ByteArrayInputStream(raw));
+            assertEquals("Hi Bcc: victim@example.com X: y", parsed.getSubject());
+        }
+
+        String longSubject = "Weekly status update for the platform team ".repeat(5).trim();
+        try (OutgoingEmail email = new OutgoingEmail("me@example.com", "you@example.com", longSubject)) {
+            byte[] raw = email.toByteArray();
+
+            String headers = new String(raw, StandardCharsets.US_ASCII).split("\r\n\r\n", 2)[0];
+            for (String line : headers.split("\r\n")) {
+                assertTrue(line.length() <= 78, line);
+            }
+            MimeMessage parsed = new MimeMessage(Session.getInstance(new Properties()), new ByteArrayInputStream(raw));
+            assertEquals(longSubject, parsed.getSubject());
+        }
+    }
+
+    @Test
+    void builtInRecapTemplateFallsBackToSnippetWithoutAiSummary() throws Exception {
+        EmailTemplateService templates = new EmailTemplateService();
+        GmailService.EmailSummary summary = new GmailService.EmailSummary();
+        summary.setFrom("a@example.com");
+        summary.setSubject("Hello");
+        summary.setSnippet("Plain <snippet>");
+
+        try (OutgoingEmail email = new OutgoingEmail("me@example.com", "me@example.com", "Recap")) {
+            templates.resolve("EMAIL_RECAP", "compact", null).render(email.body(),
+                templates.recapContext(List.of(summary), LocalDateTime.now().minusHours(1), LocalDateTime.now()));
+
+            String html = (String) new MimeMessage(Session.getInstance(new Properties()), new ByteArrayInputStream(email.toByteArray())).getContent();
+            assertTrue(html.contains("Plain &lt;snippet&gt;"));
+            assertTrue(html.contains("1 emails"));
+        }
+    }
+
+    // Names of the header fields, continuation lines belong to the field before them
+    private static List<String> headerNames(String headers) {
+        return Arrays.stream(headers.split("\r\n"))
+            .filter(line -> !line.startsWith(" ") && !line.startsWith("\t"))
+            .map(line -> line.substring(0, line.indexOf(':')))
+            .toList();
+    }
+}
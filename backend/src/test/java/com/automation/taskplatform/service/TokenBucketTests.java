@@ -0,0 +1,54 @@
+package com.automation.taskplatform.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTests {
+
+    private final ManualClock clock = new ManualClock();
+
+    @Test
+    void startsFullAndRefillsAtTheConfiguredRateUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(10, 5, clock);
+        assertTrue(bucket.tryAcquire(10));
+        assertFalse(bucket.tryAcquire(1));
+
+        clock.advanceMillis(200);
+        assertTrue(bucket.tryAcquire(1));
+        assertFalse(bucket.tryAcquire(1));
+
+        clock.advanceMillis(60_000);
+        assertEquals(10, bucket.available(), 1e-9);
+    }
+
+    @Test
+    void acquireUpToTakesOnlyWholeTokens() {
+        TokenBucket bucket = new TokenBucket(3, 5, clock);
+        assertEquals(3, bucket.acquireUpTo(5));
+
+        clock.advanceMillis(300);
+        assertEquals(1, bucket.acquireUpTo(5));
+
+        bucket.release(1);
+        assertEquals(1.5, bucket.available(), 1e-9);
+    }
+
+    @Test
+    void backOffBlocksUntilTheDebtIsRefilled() {
+        TokenBucket bucket = new TokenBucket(10, 10, clock);
+        bucket.backOff(2_000);
+        assertFalse(bucket.tryAcquire(1));
+        assertEquals(2_100, bucket.millisUntilAvailable(1), 1);
+
+        clock.advanceMillis(2_000);
+        assertFalse(bucket.tryAcquire(1));
+        assertEquals(100, bucket.millisUntilAvailable(1), 1);
+
+        clock.advanceMillis(101);
+        assertTrue(bucket.tryAcquire(1));
+        assertEquals(0, bucket.millisUntilAvailable(0));
+    }
+}
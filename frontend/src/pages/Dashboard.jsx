@@ -1,6 +1,15 @@
-import { useState, useEffect } from 'react';
+import { useState, useEffect, useRef } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { workflowApi, googleApi } from '../services/api';
+import { subscribeToExecutions } from '../services/executionEvents';
+
+// Manual runs learn their outcome from the pushed event; the run status is only checked this
+// often in case that event was missed (e.g. while the WebSocket was reconnecting)
+const RUN_STATUS_FALLBACK_MS = 15000;
+
+const formatRetryAt = (retryAt) => (retryAt
+  ? new Date(retryAt).toLocaleTimeString([], { hour: '2-digit', minute: '2-digit', second: '2-digit' })
+  : 'a later time');
 
 function Dashboard() {
   const [workflows, setWorkflows] = useState([]);
@@ -9,6 +18,11 @@ function Dashboard() {
   const [loading, setLoading] = useState(true);
   const [gmailConnected, setGmailConnected] = useState(false);
   const [runningWorkflow, setRunningWorkflow] = useState(null);
+  // Retry time by workflow ID for runs put back in the queue because Gmail or OpenAI was unavailable
+  const [deferredRuns, setDeferredRuns] = useState({});
+  // Manual runs waiting for their outcome by job ID, and outcomes that arrived before the wait began
+  const runWaiters = useRef(new Map());
+  const finishedRuns = useRef(new Map());
   const [formData, setFormData] = useState({
     name: '',
     triggerType: 'SCHEDULE',
@@ -18,6 +32,9 @@ function Dashboard() {
     scheduleFrequency: 'daily', // daily, weekdays, weekly
     // EMAIL_RECAP config
     hoursBack: 18,
+    // Email layout (built-in name) and optional custom template kept from the saved config
+    template: 'default',
+    customTemplate: '',
     // SEND_EMAIL config
     emailTo: '',
     emailSubject: '',
@@ -38,9 +55,86 @@ function Dashboard() {
       }
     };
     window.addEventListener('message', handleMessage);
-    return () => window.removeEventListener('message', handleMessage);
+
+    // Runs are pushed as they start and finish; after a reconnect the list is revalidated once
+    // to pick up anything missed meanwhile
+    const closeEvents = subscribeToExecutions(localStorage.getItem('token'), handleExecutionEvent, loadWorkflows);
+
+    return () => {
+      window.removeEventListener('message', handleMessage);
+      closeEvents();
+    };
   }, []);
 
+  const handleExecutionEvent = (event) => {
+    if (event.status === 'SUCCEEDED') {
+      setWorkflows((current) => current.map((workflow) => (workflow.id === event.workflowId
+        ? { ...workflow, lastRunAt: event.lastRunAt, nextRunAt: event.nextRunAt }
+        : workflow)));
+    } else if (event.status === 'FAILED') {
+      // A workflow whose config can never run is deactivated when it fails
+      loadWorkflows();
+    }
+
+    if (event.status === 'DEFERRED') {
+      setDeferredRuns((current) => ({ ...current, [event.workflowId]: event.retryAt }));
+    } else {
+      setDeferredRuns((current) => {
+        if (!(event.workflowId in current)) return current;
+        const rest = { ...current };
+        delete rest[event.workflowId];
+        return rest;
+      });
+    }
+
+    if (event.status === 'SUCCEEDED' || event.status === 'FAILED' || event.status === 'DEFERRED') {
+      const waiter = runWaiters.current.get(event.jobId);
+      if (waiter) {
+        waiter(event);
+      } else {
+        finishedRuns.current.set(event.jobId, event);
+        if (finishedRuns.current.size > 50) {
+          finishedRuns.current.delete(finishedRuns.current.keys().next().value);
+        }
+      }
+    }
+  };
+
+  // Resolves with the run's outcome ({ status, errorMessage, retryAt }) once it succeeds, fails or
+  // is deferred; a deferred run is retried by the backend and its later events update the list
+  const waitForRun = (id, jobId) => new Promise((resolve, reject) => {
+    let fallback;
+    const finish = (run) => {
+      clearInterval(fallback);
+      runWaiters.current.delete(jobId);
+      resolve(run);
+    };
+
+    const early = finishedRuns.current.get(jobId);
+    if (early) {
+      finishedRuns.current.delete(jobId);
+      finish(early);
+      return;
+    }
+
+    runWaiters.current.set(jobId, finish);
+    fallback = setInterval(async () => {
+      try {
+        const run = await workflowApi.getRun(id, jobId);
+        if (run.status === 'PENDING' && run.errorMessage) {
+          // Only a deferred run goes back to PENDING with a reason
+          finish({ ...run, status: 'DEFERRED', retryAt: run.runAt });
+        } else if (run.status !== 'PENDING' && run.status !== 'RUNNING') {
+          finish(run);
+        }
+      } catch (err) {
+        clearInterval(fallback);
+        runWaiters.current.delete(jobId);
+        reject(err);
+      }
+    }, RUN_STATUS_FALLBACK_MS);
+  });
+
   const handleAuthError = () => {
     // Token is invalid - clear it and redirect to login
     localStorage.removeItem('token');
@@ -115,12 +209,18 @@ function Dashboard() {
   // Build actionConfig JSON based on action type
   const buildActionConfig = () => {
     if (formData.actionType === 'EMAIL_RECAP') {
-      return JSON.stringify({ hoursBack: formData.hoursBack });
+      return JSON.stringify({
+        hoursBack: formData.hoursBack,
+        template: formData.template,
+        ...(formData.customTemplate && { customTemplate: formData.customTemplate }),
+      });
     } else if (formData.actionType === 'SEND_EMAIL') {
       return JSON.stringify({
         to: formData.emailTo,
         subject: formData.emailSubject,
         body: formData.emailBody,
+        template: formData.template,
+        ...(formData.customTemplate && { customTemplate: formData.customTemplate }),
       });
     }
     return null;
@@ -160,6 +260,8 @@ function Dashboard() {
       scheduleTime: '09:00',
       scheduleFrequency: 'daily',
       hoursBack: 18,
+      template: 'default',
+      customTemplate: '',
       emailTo: '',
       emailSubject: '',
       emailBody: '',
@@ -208,6 +310,8 @@ function Dashboard() {
       scheduleTime: time,
       scheduleFrequency: frequency,
       hoursBack: config.hoursBack || 18,
+      template: config.template || 'default',
+      customTemplate: config.customTemplate || '',
       emailTo: config.to || '',
       emailSubject: config.subject || '',
       emailBody: config.body || '',
@@ -234,7 +338,17 @@ function Dashboard() {
     }
     setRunningWorkflow(id);
     try {
-      await workflowApi.run(id);
+      const { jobId } = await workflowApi.run(id);
+      // The run is queued; a worker on any node picks it up and its outcome is pushed here
+      const run = await waitForRun(id, jobId);
+      if (run.status === 'FAILED') {
+        throw new Error(run.errorMessage || 'Workflow failed');
+      }
+      if (run.status === 'DEFERRED') {
+        setDeferredRuns((current) => ({ ...current, [id]: run.retryAt }));
+        alert(`The run is queued: ${run.errorMessage || 'a service is busy'}. It will retry at ${formatRetryAt(run.retryAt)}.`);
+        return;
+      }
       alert('Workflow executed successfully! Check your email.');
       loadWorkflows();
     } catch (err) {
@@ -402,6 +516,11 @@ function Dashboard() {
                         <span className={`px-2 py-0.5 rounded-full text-xs font-medium ${workflow.active ? 'bg-teal-100 text-teal-700' : 'bg-stone-100 text-stone-500'}`}>
                           {workflow.active ? 'Active' : 'Paused'}
                         </span>
+                        {deferredRuns[workflow.id] && (
+                          <span className="px-2 py-0.5 rounded-full text-xs font-medium bg-amber-100 text-amber-700">
+                            Queued, retrying at {formatRetryAt(deferredRuns[workflow.id])}
+                          </span>
+                        )}
                         {workflow.lastRunAt && (
                           <span className="text-stone-400 text-sm">
                             Last run {new Date(workflow.lastRunAt).toLocaleDateString()}
@@ -483,7 +602,7 @@ function Dashboard() {
                 <label className="block text-stone-700 text-sm font-medium mb-1.5">What should it do?</label>
                 <select
                   value={formData.actionType}
-                  onChange={(e) => setFormData({ ...formData, actionType: e.target.value })}
+                  onChange={(e) => setFormData({ ...formData, actionType: e.target.value, template: 'default', customTemplate: '' })}
                   className="w-full px-4 py-2.5 bg-stone-50 border border-stone-200 rounded-xl text-stone-800 focus:outline-none focus:ring-2 focus:ring-teal-500 focus:border-teal-500 focus:bg-white transition"
                 >
                   <option value="EMAIL_RECAP">Send me an email recap</option>
@@ -491,6 +610,21 @@ function Dashboard() {
                 </select>
               </div>
 
+              <div>
+                <label className="block text-stone-700 text-sm font-medium mb-1.5">Email layout</label>
+                <select
+                  value={formData.customTemplate ? 'custom' : formData.template}
+                  onChange={(e) => setFormData({ ...formData, template: e.target.value, customTemplate: '' })}
+                  className="w-full px-4 py-2.5 bg-stone-50 border border-stone-200 rounded-xl text-stone-800 focus:outline-none focus:ring-2 focus:ring-teal-500 focus:border-teal-500 focus:bg-white transition"
+                >
+                  <option value="default">Standard</option>
+                  {formData.actionType === 'EMAIL_RECAP'
+                    ? <option value="compact">Compact</option>
+                    : <option value="plain">Plain</option>}
+                  {formData.customTemplate && <option value="custom">Custom template</option>}
+                </select>
+              </div>
+
               {/* EMAIL_RECAP specific options */}
               {formData.actionType === 'EMAIL_RECAP' && (
                 <div>
@@ -34,12 +34,21 @@ export const authApi = {
 
 // Workflow API calls
 export const workflowApi = {
+  // Follows the keyset pages via the Link header. Unchanged pages are revalidated with their
+  // ETag, so the browser serves them from its cache after a 304.
   getAll: async () => {
-    const res = await fetch(`${API_URL}/workflows`, {
-      headers: { 'Authorization': `Bearer ${getToken()}` },
-    });
-    if (!res.ok) throw new Error(`${res.status}: Failed to fetch workflows`);
-    return res.json();
+    const workflows = [];
+    let url = `${API_URL}/workflows?limit=500`;
+    while (url) {
+      const res = await fetch(url, {
+        headers: { 'Authorization': `Bearer ${getToken()}` },
+      });
+      if (!res.ok) throw new Error(`${res.status}: Failed to fetch workflows`);
+      workflows.push(...(await res.json()));
+      const next = /<([^>]+)>;\s*rel="next"/.exec(res.headers.get('Link') || '');
+      url = next ? next[1] : null;
+    }
+    return workflows;
   },
 
   create: async (workflow) => {
@@ -85,6 +94,14 @@ export const workflowApi = {
       const error = await res.json();
       throw new Error(error.error || 'Failed to run workflow');
     }
+    return res.json(); // { jobId, status, statusUrl } - the run continues in the background
+  },
+
+  getRun: async (id, jobId) => {
+    const res = await fetch(`${API_URL}/workflows/${id}/runs/${jobId}`, {
+      headers: { 'Authorization': `Bearer ${getToken()}` },
+    });
+    if (!res.ok) throw new Error('Failed to get run status');
     return res.json();
   },
 };
@@ -0,0 +1,80 @@
+// Execution events pushed by the server over STOMP on /ws (a few frames of STOMP 1.2, so no
+// client library is needed). The JWT goes in the CONNECT frame, since browsers cannot set
+// headers on the WebSocket handshake. Reconnects with backoff after the connection drops, but
+// not once the server has closed it because the token expired (close code 1008).
+const HEARTBEAT_MS = 10000;
+const MAX_RECONNECT_DELAY_MS = 30000;
+const POLICY_VIOLATION = 1008;
+
+const frame = (command, headers, body = '') =>
+  `${command}\n${Object.entries(headers).map(([name, value]) => `${name}:${value}`).join('\n')}\n\n${body}\0`;
+
+const parseFrame = (text) => {
+  const [head, ...rest] = text.replace(/^\n+/, '').split('\n\n');
+  const [command, ...headerLines] = head.split('\n');
+  const headers = Object.fromEntries(headerLines.map((line) => {
+    const separator = line.indexOf(':');
+    return [line.slice(0, separator), line.slice(separator + 1)];
+  }));
+  return { command, headers, body: rest.join('\n\n') };
+};
+
+// Calls onEvent with every ExecutionEvent of the signed-in user, and onReconnect each time the
+// connection comes back after a drop (events sent meanwhile were missed). Returns a function
+// that closes the connection for good.
+export const subscribeToExecutions = (token, onEvent, onReconnect) => {
+  let socket;
+  let heartbeat;
+  let retryTimer;
+  let attempts = 0;
+  let connectedBefore = false;
+  let closed = false;
+
+  const connect = () => {
+    const protocol = window.location.protocol === 'https:' ? 'wss' : 'ws';
+    socket = new WebSocket(`${protocol}://${window.location.host}/ws`);
+
+    socket.onopen = () => {
+      socket.send(frame('CONNECT', {
+        'accept-version': '1.2',
+        host: window.location.host,
+        'heart-beat': `${HEARTBEAT_MS},${HEARTBEAT_MS}`,
+        Authorization: `Bearer ${token}`,
+      }));
+    };
+
+    socket.onmessage = ({ data }) => {
+      for (const text of data.split('\0')) {
+        if (!text.trim()) continue; // server heartbeat
+        const { command, headers, body } = parseFrame(text);
+        if (command === 'CONNECTED') {
+          socket.send(frame('SUBSCRIBE', { id: 'executions', destination: '/user/queue/executions' }));
+          heartbeat = setInterval(() => socket.send('\n'), HEARTBEAT_MS);
+          attempts = 0;
+          if (connectedBefore) onReconnect();
+          connectedBefore = true;
+        } else if (command === 'MESSAGE') {
+          onEvent(JSON.parse(body));
+        } else if (command === 'ERROR') {
+          console.error('Execution events:', headers.message || body);
+        }
+      }
+    };
+
+    socket.onclose = ({ code }) => {
+      clearInterval(heartbeat);
+      if (closed || code === POLICY_VIOLATION) return;
+      const delay = Math.min(1000 * 2 ** attempts, MAX_RECONNECT_DELAY_MS);
+      attempts += 1;
+      retryTimer = setTimeout(connect, delay);
+    };
+  };
+
+  connect();
+  return () => {
+    closed = true;
+    clearTimeout(retryTimer);
+    clearInterval(heartbeat);
+    socket.close();
+  };
+};